@@ -1,18 +1,38 @@
 package demo;
 
+import utils.ConcurrentStripedHashMap;
+import utils.ExpiringHashMap;
 import utils.HashManager;
 import utils.HashMap;
+import utils.HashMapOa;
+import utils.HashMapOaSoa;
+import utils.HopscotchHashMap;
+import utils.IntObjectHashMapOa;
+import utils.LockFreeHashMapOa;
+import utils.LruHashMap;
 import utils.Map;
+import utils.SwissHashMapOa;
+import utils.TinyLfuCache;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @BenchmarkMode(Mode.AverageTime)
 @State(Scope.Benchmark)
@@ -24,9 +44,13 @@ public class Benchmark {
     @State(Scope.Benchmark)
     public static class FullMap {
 
+        // HashMap or the open addressing type of HashMapOa
+        @Param({"HashMap", "LINEAR", "QUADRATIC", "DOUBLE_HASHING", "ROBIN_HOOD"})
+        String mapType;
+
         List<String> ids;
         List<Car> cars;
-        HashMap<String, Car> carsMap;
+        Map<String, Car> carsMap;
 
         @Setup(Level.Iteration)
         public void generateIdsAndCars(BenchmarkParams params) {
@@ -36,8 +60,286 @@ public class Benchmark {
 
         @Setup(Level.Invocation)
         public void fillCarMap(BenchmarkParams params) {
+            carsMap = mapType.equals("HashMap")
+                    ? new HashMap<>(HashManager.HashType.DIVISION)
+                    : new HashMapOa<>(HashMapOa.DEFAULT_INITIAL_CAPACITY, HashMapOa.DEFAULT_LOAD_FACTOR,
+                    HashManager.HashType.DIVISION, HashMapOa.OpenAddressingType.valueOf(mapType));
+            putMappings(ids, cars, carsMap);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class IntKeys {
+
+        int[] keys;
+        List<Car> cars;
+
+        @Setup(Level.Iteration)
+        public void generateKeysAndCars(BenchmarkParams params) {
+            int count = Integer.parseInt(params.getParam("elementCount"));
+            keys = Benchmark.generateIntKeys(count);
+            cars = Benchmark.generateCars(count);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class LookupMaps {
+
+        List<String> ids;
+        List<String> missingIds;
+        HashMapOa<String, Car> carsMapOa;
+        HashMapOaSoa<String, Car> carsMapOaSoa;
+        SwissHashMapOa<String, Car> carsSwissMap;
+
+        @Setup(Level.Iteration)
+        public void fillCarMaps(BenchmarkParams params) {
+            int count = Integer.parseInt(params.getParam("elementCount"));
+            ids = Benchmark.generateIds(count);
+            missingIds = Benchmark.generateIds(count);
+            List<Car> cars = Benchmark.generateCars(count);
+            carsMapOa = new HashMapOa<>(HashManager.HashType.DIVISION);
+            carsMapOaSoa = new HashMapOaSoa<>(HashManager.HashType.DIVISION);
+            carsSwissMap = new SwissHashMapOa<>();
+            putMappings(ids, cars, carsMapOa);
+            putMappings(ids, cars, carsMapOaSoa);
+            putMappings(ids, cars, carsSwissMap);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class GrowingMap {
+
+        @Param({"STOP_THE_WORLD", "INCREMENTAL"})
+        HashMap.RehashMode rehashMode;
+
+        List<String> ids;
+        List<Car> cars;
+        HashMap<String, Car> carsMap;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void generateIdsAndCars(BenchmarkParams params) {
+            ids = Benchmark.generateIds(Integer.parseInt(params.getParam("elementCount")));
+            cars = Benchmark.generateCars(Integer.parseInt(params.getParam("elementCount")));
+            newMap();
+        }
+
+        void newMap() {
+            carsMap = new HashMap<>(HashMap.DEFAULT_INITIAL_CAPACITY, HashMap.DEFAULT_LOAD_FACTOR,
+                    HashManager.HashType.DIVISION, rehashMode);
+            next = 0;
+        }
+    }
+
+    /**
+     * A map shared by all the benchmark threads. The lock-striped and the lock-free maps are compared with
+     * the chained HashMap guarded by a single lock.
+     */
+    @State(Scope.Benchmark)
+    public static class SharedMap {
+
+        @Param({"STRIPED", "LOCK_FREE", "SYNCHRONIZED"})
+        String mapType;
+
+        @Param({"50", "90", "100"})
+        int readPercent;
+
+        List<String> ids;
+        List<Car> cars;
+        Map<String, Car> carsMap;
+        boolean synchronizedMap;
+
+        @Setup(Level.Iteration)
+        public void fillCarsMap(BenchmarkParams params) {
+            int count = Integer.parseInt(params.getParam("elementCount"));
+            ids = Benchmark.generateIds(count);
+            cars = Benchmark.generateCars(count);
+            switch (mapType) {
+                case "STRIPED":
+                    carsMap = new ConcurrentStripedHashMap<>(HashManager.HashType.DIVISION);
+                    break;
+                case "LOCK_FREE":
+                    // Linear probing clusters the ids under the division hash, so the spreading one is used
+                    carsMap = new LockFreeHashMapOa<>(HashManager.HashType.JCF7);
+                    break;
+                default:
+                    carsMap = new HashMap<>(HashManager.HashType.DIVISION);
+            }
+            synchronizedMap = mapType.equals("SYNCHRONIZED");
+            putMappings(ids, cars, carsMap);
+        }
+
+        /**
+         * Gets a random id, or puts or removes it: the removed ids leave tombstones to the lock-free map.
+         */
+        Car readOrWrite() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int i = random.nextInt(ids.size());
+            int operation = random.nextInt(200);
+            if (synchronizedMap) {
+                synchronized (carsMap) {
+                    return readOrWrite(i, operation);
+                }
+            }
+            return readOrWrite(i, operation);
+        }
+
+        private Car readOrWrite(int i, int operation) {
+            if (operation < readPercent * 2) {
+                return carsMap.get(ids.get(i));
+            }
+            return operation % 2 == 0 ? carsMap.put(ids.get(i), cars.get(i)) : carsMap.remove(ids.get(i));
+        }
+    }
+
+    /**
+     * The text of the words of the dictionary. The dictionary holds each word once, so the words of the text are
+     * drawn with a skew to the beginning of it: a few words repeat often, like in a natural text.
+     */
+    @State(Scope.Benchmark)
+    public static class WordText {
+
+        List<String> words;
+
+        @Setup(Level.Trial)
+        public void readWords(BenchmarkParams params) throws IOException {
+            List<String> dictionary = Files.readAllLines(Paths.get("data", "zodynas.txt"));
+            int count = Integer.parseInt(params.getParam("elementCount"));
+            Random random = new Random(count);
+            words = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                double skew = random.nextDouble();
+                words.add(dictionary.get((int) (skew * skew * skew * dictionary.size())));
+            }
+        }
+    }
+
+    /**
+     * The ban lists checked by the words of the dictionary: nearly every check is a miss. The words of
+     * data/ban.txt are joined by the generated ids, so the ban list is large enough to leave the cache.
+     */
+    @State(Scope.Benchmark)
+    public static class BanLists {
+
+        @Param({"false", "true"})
+        boolean bloomFilter;
+
+        List<String> words;
+        HashMap<String, String> banMap;
+        HashMapOa<String, String> banMapOa;
+
+        @Setup(Level.Trial)
+        public void fillBanLists(BenchmarkParams params) throws IOException {
+            words = Files.readAllLines(Paths.get("data", "zodynas.txt"));
+            List<String> banned = new ArrayList<>(Files.readAllLines(Paths.get("data", "ban.txt")));
+            banned.addAll(Benchmark.generateIds(Integer.parseInt(params.getParam("elementCount"))));
+            banMap = new HashMap<>(HashManager.HashType.DIVISION);
+            banMapOa = new HashMapOa<>(HashManager.HashType.DIVISION);
+            if (bloomFilter) {
+                banMap.enableBloomFilter(banned.size(), 0.01);
+                banMapOa.enableBloomFilter(banned.size(), 0.01);
+            }
+            banMap.putAll(banned, banned);
+            banMapOa.putAll(banned, banned);
+        }
+    }
+
+    /**
+     * The requests of the cars by id, skewed to a few popular ids, optionally interrupted by the full scan
+     * of all the ids. The cache holds a tenth of the cars, the missed cars are read from the map
+     * of all the cars, which stands for the slow pricing lookup.
+     */
+    @State(Scope.Benchmark)
+    public static class CarRequests {
+
+        @Param({"ZIPF", "ZIPF_SCAN"})
+        CacheSimulator.Trace trace;
+
+        List<String> requests;
+        Map<String, Car> carsSource;
+        int cacheSize;
+
+        @Setup(Level.Trial)
+        public void generateRequests(BenchmarkParams params) {
+            int count = Integer.parseInt(params.getParam("elementCount"));
+            List<String> ids = Benchmark.generateIds(count);
+            carsSource = new HashMap<>(HashManager.HashType.DIVISION);
+            carsSource.putAll(ids, Benchmark.generateCars(count));
+            cacheSize = count / 10;
+            requests = trace.requests(ids, 2 * count, new Random(count));
+        }
+    }
+
+    /**
+     * The car listings arriving 1 ms apart by the simulated clock, each listing stays valid for a quarter
+     * of the ids times 1 ms. The stale listings are reclaimed by the timer wheel or by the scans of the whole table.
+     */
+    @State(Scope.Benchmark)
+    public static class CarListings {
+
+        // the simulated time between the listings
+        static final long STEP = TimeUnit.MILLISECONDS.toNanos(1);
+        // the stale listings are scanned for once per 2^30 ns, like the tick of the timer wheel
+        static final int SCAN_PERIOD = (int) ((1L << 30) / STEP);
+
+        List<String> listings;
+        List<Car> cars;
+        long ttl;
+
+        @Setup(Level.Trial)
+        public void generateListings(BenchmarkParams params) {
+            int count = Integer.parseInt(params.getParam("elementCount"));
+            List<String> ids = Benchmark.generateIds(count);
+            cars = Benchmark.generateCars(count);
+            ttl = count / 4 * STEP;
+            Random random = new Random(count);
+            listings = new ArrayList<>(2 * count);
+            for (int i = 0; i < 2 * count; i++) {
+                listings.add(ids.get(random.nextInt(count)));
+            }
+        }
+    }
+
+    /**
+     * The filled maps, which entries are aggregated by the streams.
+     */
+    @State(Scope.Benchmark)
+    public static class StreamedMaps {
+
+        HashMap<String, Car> carsMap;
+        HashMapOa<String, Car> carsMapOa;
+
+        @Setup(Level.Iteration)
+        public void fillCarMaps(BenchmarkParams params) {
+            int count = Integer.parseInt(params.getParam("elementCount"));
+            List<String> ids = Benchmark.generateIds(count);
+            List<Car> cars = Benchmark.generateCars(count);
             carsMap = new HashMap<>(HashManager.HashType.DIVISION);
+            carsMapOa = new HashMapOa<>(HashManager.HashType.DIVISION);
             putMappings(ids, cars, carsMap);
+            putMappings(ids, cars, carsMapOa);
+        }
+    }
+
+    /**
+     * The pool of the parallel bulk build, the build time is compared by the number of its workers.
+     */
+    @State(Scope.Benchmark)
+    public static class BuildPool {
+
+        @Param({"1", "2", "4", "8"})
+        int parallelism;
+
+        ForkJoinPool pool;
+
+        @Setup(Level.Trial)
+        public void createPool() {
+            pool = new ForkJoinPool(parallelism);
+        }
+
+        @TearDown(Level.Trial)
+        public void shutdownPool() {
+            pool.shutdown();
         }
     }
 
@@ -61,6 +363,15 @@ public class Benchmark {
         return new ArrayList<>(CarsGenerator.generateShuffleCars(count));
     }
 
+    static int[] generateIntKeys(int count) {
+        List<Integer> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(1_000_000 + i);
+        }
+        Collections.shuffle(keys);
+        return keys.stream().mapToInt(Integer::intValue).toArray();
+    }
+
     @org.openjdk.jmh.annotations.Benchmark
     public Map<String, Car> putMap() {
         Map<String, Car> carsMap = new HashMap<>(HashManager.HashType.DIVISION);
@@ -68,21 +379,388 @@ public class Benchmark {
         return carsMap;
     }
 
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Car> putMapJcf() {
+        Map<String, Car> carsMap = new HashMap<>(HashManager.HashType.JCF);
+        putMappings(ids, cars, carsMap);
+        return carsMap;
+    }
+
+    /**
+     * No rehash happens in the presized map: the difference of gc.alloc.rate.norm with putMap
+     * is the amount of bytes allocated by the rehashes.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Car> putMapPresized() {
+        Map<String, Car> carsMap = new HashMap<>((int) (elementCount / HashMap.DEFAULT_LOAD_FACTOR) + 1,
+                HashManager.HashType.DIVISION);
+        putMappings(ids, cars, carsMap);
+        return carsMap;
+    }
+
+    /**
+     * Bulk insertion: the table is sized once for all the ids instead of being rehashed while it grows.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Car> putAllMap() {
+        Map<String, Car> carsMap = new HashMap<>(HashManager.HashType.DIVISION);
+        carsMap.putAll(ids, cars);
+        return carsMap;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Car> putAllParallelMap(BuildPool buildPool) {
+        HashMap<String, Car> carsMap = new HashMap<>(HashManager.HashType.DIVISION);
+        carsMap.putAllParallel(ids, cars, buildPool.pool);
+        return carsMap;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Car> putHashMapOa() {
+        Map<String, Car> carsMap = new HashMapOa<>(HashManager.HashType.DIVISION);
+        putMappings(ids, cars, carsMap);
+        return carsMap;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Car> putAllHashMapOa() {
+        Map<String, Car> carsMap = new HashMapOa<>(HashManager.HashType.DIVISION);
+        carsMap.putAll(ids, cars);
+        return carsMap;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Car> putAllParallelHashMapOa(BuildPool buildPool) {
+        HashMapOa<String, Car> carsMap = new HashMapOa<>(HashManager.HashType.DIVISION);
+        carsMap.putAllParallel(ids, cars, buildPool.pool);
+        return carsMap;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Car> putHashMapOaSoa() {
+        Map<String, Car> carsMap = new HashMapOaSoa<>(HashManager.HashType.DIVISION);
+        putMappings(ids, cars, carsMap);
+        return carsMap;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Car> putOffHeapCarMap() {
+        Map<String, Car> carsMap = new OffHeapCarMap(HashManager.HashType.DIVISION);
+        putMappings(ids, cars, carsMap);
+        return carsMap;
+    }
+
+    /**
+     * Car keys have an expensive hashCode and equals, compare with putMap keyed by String.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<Car, String> putMapCarKeys() {
+        Map<Car, String> idsMap = new HashMap<>(HashManager.HashType.DIVISION);
+        putMappingsByCar(cars, ids, idsMap);
+        return idsMap;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<Car, String> putHashMapOaCarKeys() {
+        Map<Car, String> idsMap = new HashMapOa<>(HashManager.HashType.DIVISION);
+        putMappingsByCar(cars, ids, idsMap);
+        return idsMap;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Car> putHopscotchMap() {
+        Map<String, Car> carsMap = new HopscotchHashMap<>(HashManager.HashType.DIVISION);
+        putMappings(ids, cars, carsMap);
+        return carsMap;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Car> putSwissMap() {
+        Map<String, Car> carsMap = new SwissHashMapOa<>();
+        putMappings(ids, cars, carsMap);
+        return carsMap;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public int getHashMapOaHitsAndMisses(LookupMaps maps) {
+        return getMappings(maps.ids, maps.carsMapOa) + getMappings(maps.missingIds, maps.carsMapOa);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public int getHashMapOaSoaHitsAndMisses(LookupMaps maps) {
+        return getMappings(maps.ids, maps.carsMapOaSoa) + getMappings(maps.missingIds, maps.carsMapOaSoa);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public int getSwissMapHitsAndMisses(LookupMaps maps) {
+        return getMappings(maps.ids, maps.carsSwissMap) + getMappings(maps.missingIds, maps.carsSwissMap);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<Integer, Car> putHashMapOaIntegerKeys(IntKeys intKeys) {
+        Map<Integer, Car> carsMap = new HashMapOa<>(HashManager.HashType.DIVISION);
+        for (int i = 0; i < intKeys.keys.length; i++) {
+            carsMap.put(intKeys.keys[i], intKeys.cars.get(i));
+        }
+        return carsMap;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<Integer, Car> putIntObjectMapOa(IntKeys intKeys) {
+        IntObjectHashMapOa<Car> carsMap = new IntObjectHashMapOa<>(HashManager.HashType.DIVISION);
+        for (int i = 0; i < intKeys.keys.length; i++) {
+            carsMap.putInt(intKeys.keys[i], intKeys.cars.get(i));
+        }
+        return carsMap;
+    }
+
+    /**
+     * Latency of a single put into a growing map: the tail percentiles show the pauses of rehashing.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Car putLatency(GrowingMap growingMap) {
+        if (growingMap.next == growingMap.ids.size()) {
+            growingMap.newMap();
+        }
+        int i = growingMap.next++;
+        return growingMap.carsMap.put(growingMap.ids.get(i), growingMap.cars.get(i));
+    }
+
     @org.openjdk.jmh.annotations.Benchmark
     public void removeCarMap(FullMap fullMap) {
         fullMap.ids.forEach(id -> fullMap.carsMap.remove(id));
     }
 
+    /**
+     * Mixed reads and writes of the generated keys on a shared map: the throughput over the thread counts
+     * shows how the map scales with the cores.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public Car sharedMap1Thread(SharedMap sharedMap) {
+        return sharedMap.readOrWrite();
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(2)
+    public Car sharedMap2Threads(SharedMap sharedMap) {
+        return sharedMap.readOrWrite();
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public Car sharedMap4Threads(SharedMap sharedMap) {
+        return sharedMap.readOrWrite();
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(8)
+    public Car sharedMap8Threads(SharedMap sharedMap) {
+        return sharedMap.readOrWrite();
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(16)
+    public Car sharedMap16Threads(SharedMap sharedMap) {
+        return sharedMap.readOrWrite();
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(Threads.MAX)
+    public Car sharedMapMaxThreads(SharedMap sharedMap) {
+        return sharedMap.readOrWrite();
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public java.util.Map<String, Double> averagePriceByMakeMap(StreamedMaps maps) {
+        return averagePriceByMake(maps.carsMap.stream());
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public java.util.Map<String, Double> averagePriceByMakeParallelMap(StreamedMaps maps) {
+        return averagePriceByMake(maps.carsMap.parallelStream());
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public java.util.Map<String, Double> averagePriceByMakeHashMapOa(StreamedMaps maps) {
+        return averagePriceByMake(maps.carsMapOa.stream());
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public java.util.Map<String, Double> averagePriceByMakeParallelHashMapOa(StreamedMaps maps) {
+        return averagePriceByMake(maps.carsMapOa.parallelStream());
+    }
+
+    public static java.util.Map<String, Double> averagePriceByMake(Stream<java.util.Map.Entry<String, Car>> entries) {
+        return entries.map(java.util.Map.Entry::getValue)
+                .collect(Collectors.groupingBy(Car::getMake, Collectors.averagingDouble(Car::getPrice)));
+    }
+
+    /**
+     * Word counting by get and put, which locate the word twice.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Integer> countWordsGetPutMap(WordText text) {
+        return countWordsGetPut(text.words, new HashMap<>(HashManager.HashType.DIVISION));
+    }
+
+    /**
+     * Word counting by merge, which locates the word once.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Integer> countWordsMergeMap(WordText text) {
+        return countWordsMerge(text.words, new HashMap<>(HashManager.HashType.DIVISION));
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Integer> countWordsGetPutHashMapOa(WordText text) {
+        return countWordsGetPut(text.words, new HashMapOa<>(HashManager.HashType.DIVISION));
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public Map<String, Integer> countWordsMergeHashMapOa(WordText text) {
+        return countWordsMerge(text.words, new HashMapOa<>(HashManager.HashType.DIVISION));
+    }
+
+    public static Map<String, Integer> countWordsGetPut(List<String> words, Map<String, Integer> counts) {
+        for (String word : words) {
+            Integer count = counts.get(word);
+            counts.put(word, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    public static Map<String, Integer> countWordsMerge(List<String> words, Map<String, Integer> counts) {
+        for (String word : words) {
+            counts.merge(word, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public int containsBannedMap(BanLists banLists) {
+        return countBanned(banLists.words, banLists.banMap);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public int containsBannedHashMapOa(BanLists banLists) {
+        return countBanned(banLists.words, banLists.banMapOa);
+    }
+
+    public static int countBanned(List<String> words, Map<String, String> banMap) {
+        int banned = 0;
+        for (String word : words) {
+            if (banMap.contains(word)) {
+                banned++;
+            }
+        }
+        return banned;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public LruHashMap<String, Car> lruCacheCars(CarRequests carRequests) {
+        LruHashMap<String, Car> cache = new LruHashMap<>(carRequests.cacheSize, HashManager.HashType.DIVISION);
+        for (String id : carRequests.requests) {
+            cache.computeIfAbsent(id, carRequests.carsSource::get);
+        }
+        return cache;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public TinyLfuCache<String, Car> tinyLfuCacheCars(CarRequests carRequests) {
+        TinyLfuCache<String, Car> cache = new TinyLfuCache<>(carRequests.cacheSize, HashManager.HashType.DIVISION);
+        for (String id : carRequests.requests) {
+            cache.computeIfAbsent(id, carRequests.carsSource::get);
+        }
+        return cache;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public ExpiringHashMap<String, Car> expiringMapListings(CarListings carListings) {
+        long[] clock = {0};
+        ExpiringHashMap<String, Car> listed = new ExpiringHashMap<>(carListings.ttl, TimeUnit.NANOSECONDS,
+                HashMap.DEFAULT_INITIAL_CAPACITY, HashMap.DEFAULT_LOAD_FACTOR, HashManager.HashType.DIVISION,
+                () -> clock[0]);
+        for (int i = 0; i < carListings.listings.size(); i++) {
+            clock[0] += CarListings.STEP;
+            String id = carListings.listings.get(i);
+            if (listed.get(id) == null) {
+                listed.put(id, carListings.cars.get(i % carListings.cars.size()));
+            }
+        }
+        return listed;
+    }
+
+    /**
+     * The same listings in the HashMap with the expiry times in a second HashMap,
+     * the whole table is scanned for the stale listings once per tick.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public HashMap<String, Car> scannedMapListings(CarListings carListings) {
+        long clock = 0;
+        HashMap<String, Car> listed = new HashMap<>(HashManager.HashType.DIVISION);
+        HashMap<String, Long> expiries = new HashMap<>(HashManager.HashType.DIVISION);
+        List<String> stale = new ArrayList<>();
+        for (int i = 0; i < carListings.listings.size(); i++) {
+            clock += CarListings.STEP;
+            long now = clock;
+            if (i % CarListings.SCAN_PERIOD == 0) {
+                expiries.forEach((id, expiresAt) -> {
+                    if (expiresAt - now <= 0) {
+                        stale.add(id);
+                    }
+                });
+                for (String id : stale) {
+                    listed.remove(id);
+                    expiries.remove(id);
+                }
+                stale.clear();
+            }
+            String id = carListings.listings.get(i);
+            Long expiresAt = expiries.get(id);
+            if (expiresAt == null || expiresAt - now <= 0) {
+                listed.put(id, carListings.cars.get(i % carListings.cars.size()));
+                expiries.put(id, now + carListings.ttl);
+            }
+        }
+        return listed;
+    }
+
     public static void putMappings(List<String> ids, List<Car> cars, Map<String, Car> carsMap) {
         for (int i = 0; i < cars.size(); i++) {
             carsMap.put(ids.get(i), cars.get(i));
         }
     }
 
+    public static void putMappingsByCar(List<Car> cars, List<String> ids, Map<Car, String> idsMap) {
+        for (int i = 0; i < cars.size(); i++) {
+            idsMap.put(cars.get(i), ids.get(i));
+        }
+    }
+
+    public static int getMappings(List<String> ids, Map<String, Car> carsMap) {
+        int found = 0;
+        for (String id : ids) {
+            if (carsMap.get(id) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
     public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder()
                 .include(Benchmark.class.getSimpleName())
                 .forks(1)
+                .addProfiler(GCProfiler.class)
                 .build();
         new Runner(opt).run();
     }
@@ -0,0 +1,128 @@
+package demo;
+
+import utils.HashManager;
+import utils.Ks;
+import utils.LruHashMap;
+import utils.Map;
+import utils.TinyLfuCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Replays the traces of the car id requests through the caches and prints their hit ratios.
+ * The LruHashMap is compared with the TinyLfuCache on the popular ids (Zipf), on the full scans
+ * and on the popular ids interrupted by the full scans, like the nightly scans of the whole table.
+ */
+public class CacheSimulator {
+
+    // the exponent of the Zipf distribution, the web and database traces are close to 1
+    static final double ZIPF_EXPONENT = 0.9;
+    // the number of distinct ids requested
+    private static final int ID_COUNT = 50000;
+    // the number of requests in each trace
+    private static final int TRACE_LENGTH = 1000000;
+    // the cache sizes, percent of the ids
+    private static final int[] CACHE_PERCENTS = {1, 5, 10, 25};
+
+    /**
+     * The patterns of the requests.
+     */
+    public enum Trace {
+        // the ids are requested by their popularity rank
+        ZIPF,
+        // all the ids are requested one after another, again and again
+        SCAN,
+        // the popular ids, and a full scan of all the ids after each length / 4 requests
+        ZIPF_SCAN;
+
+        /**
+         * Generates the requests of the ids. The ranks of the popularity follow the order of the ids,
+         * so the shuffled ids are popular in a random order.
+         *
+         * @param ids the requested ids.
+         * @param length the number of requests.
+         * @param random the source of the Zipf ranks.
+         * @return the list of requested ids.
+         */
+        public List<String> requests(List<String> ids, int length, Random random) {
+            List<String> requests = new ArrayList<>(length);
+            double[] zipf = zipfDistribution(ids.size());
+            int scanPeriod = Math.max(1, length / 4);
+            while (requests.size() < length) {
+                if (this == SCAN || (this == ZIPF_SCAN && requests.size() % scanPeriod == 0 && requests.size() > 0)) {
+                    for (int i = 0; i < ids.size() && requests.size() < length; i++) {
+                        requests.add(ids.get(i));
+                    }
+                }
+                if (this != SCAN && requests.size() < length) {
+                    requests.add(ids.get(zipfRank(zipf, random)));
+                }
+            }
+            return requests;
+        }
+    }
+
+    public static void main(String[] args) {
+        Locale.setDefault(Locale.US); // Unify number formats
+        List<String> ids = new ArrayList<>(CarsGenerator.generateShuffleIds(ID_COUNT));
+        for (Trace trace : Trace.values()) {
+            List<String> requests = trace.requests(ids, TRACE_LENGTH, new Random(ID_COUNT));
+            Ks.oufln("****** %s trace, %d requests of %d ids ******", trace, requests.size(), ids.size());
+            Ks.oufln("%10s %10s %10s", "cache", "LRU", "TinyLFU");
+            for (int percent : CACHE_PERCENTS) {
+                int cacheSize = ID_COUNT * percent / 100;
+                double lru = hitRatio(new LruHashMap<>(cacheSize, HashManager.HashType.DIVISION), requests);
+                double tinyLfu = hitRatio(new TinyLfuCache<>(cacheSize, HashManager.HashType.DIVISION), requests);
+                Ks.oufln("%10d %9.2f%% %9.2f%%", cacheSize, lru * 100, tinyLfu * 100);
+            }
+        }
+    }
+
+    /**
+     * Replays the requests through the cache, the missed ids are cached with themselves as the values.
+     *
+     * @param cache the empty cache.
+     * @param requests the requested ids.
+     * @return the part of the requests found in the cache.
+     */
+    public static double hitRatio(Map<String, String> cache, List<String> requests) {
+        int hits = 0;
+        for (String id : requests) {
+            if (cache.get(id) != null) {
+                hits++;
+            } else {
+                cache.put(id, id);
+            }
+        }
+        return (double) hits / requests.size();
+    }
+
+    /**
+     * Returns the cumulative probabilities of the ranks 0 .. count - 1, the rank r is requested
+     * with the probability proportional to 1 / (r + 1)^s.
+     */
+    static double[] zipfDistribution(int count) {
+        double[] cumulative = new double[count];
+        double sum = 0;
+        for (int rank = 0; rank < count; rank++) {
+            sum += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < count; rank++) {
+            cumulative[rank] /= sum;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Draws the rank by the inverse of the cumulative distribution.
+     */
+    static int zipfRank(double[] cumulative, Random random) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(rank >= 0 ? rank : -rank - 1, cumulative.length - 1);
+    }
+}
@@ -2,6 +2,7 @@ package demo;
 
 import utils.*;
 
+import java.nio.file.Paths;
 import java.util.Locale;
 
 import static utils.HashMap.DEFAULT_INITIAL_CAPACITY;
@@ -29,6 +30,7 @@ public class ManualTest {
         Car[] cars = {car1, car2, car3, car4, car5, car6, car7};
         executeCarMapTests(carsIds, cars);
         executeCarMapOaTests(carsIds, cars);
+        executeMappedCarMapTests(carsIds, cars);
     }
 
     private static void executeCarMapTests(String[] carsIds, Car[] cars) {
@@ -87,4 +89,24 @@ public class ManualTest {
         Ks.oun("Print the string of key-value pairs:");
         Ks.ounn(carsMapOa);
     }
+
+    private static void executeMappedCarMapTests(String[] carsIds, Car[] cars) {
+        String filePath = Paths.get(System.getProperty("java.io.tmpdir"), "cars" + MappedCarMap.FILE_EXTENSION).toString();
+        try (MappedCarMap carsMap = new MappedCarMap(filePath)) {
+            carsMap.clear();
+            for (int id = 0; id < cars.length; id++) {
+                carsMap.put(carsIds[id], cars[id]);
+            }
+            carsMap.save(filePath);
+        }
+
+        // The file is opened again: the hash table is ready without parsing
+        try (MappedCarMap carsMap = new MappedCarMap(filePath)) {
+            Ks.oun("Distribution of key-value pairs in the hash map file:");
+            carsMap.println("");
+            Ks.oun("Lookup by key:");
+            Ks.oun(carsMap.get(carsIds[2]));
+            Ks.oun(carsMap.get(carsIds[7]));
+        }
+    }
 }
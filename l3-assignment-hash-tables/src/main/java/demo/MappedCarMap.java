@@ -0,0 +1,660 @@
+package demo;
+
+import utils.HashManager;
+import utils.Ks;
+import utils.ParsableMap;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+
+import static gui.Table.ARROW;
+
+/**
+ * The persistent hash table of cars living in a file mapped into memory.
+ * The file holds a header, the bucket array and the heap of entries, every entry is a node of a bucket chain:
+ * <pre>
+ * header:  [int magic][int version][int hash type][float load factor][int capacity][int size]
+ *          [int buckets offset][int heap end][int rehashes][int last updated][int garbage bytes]
+ * buckets: capacity * [int offset of the first entry of the chain, 0 if the chain is empty]
+ * entry:   [int next entry offset][int hash][short key length][key][short make length][make]
+ *          [short model length][model][int year][int mileage][double price]
+ * </pre>
+ * All the changes are written straight into the mapped region, so opening an existing file
+ * makes the map usable at once without any parsing, and save only forces the region to the disk.
+ * On rehash a twice larger bucket array is placed at the end of the heap and the entries are relinked in place.
+ * The removed entries, the old versions of the entries which changed their size and the old bucket arrays
+ * are counted as garbage. When the garbage takes more than half of the heap, the live entries are slid
+ * to the beginning of the heap and a new bucket array is placed after them, so the space is reused
+ * and the file does not grow beyond about twice the live entries.
+ * The file grows by doubling and may not exceed 2 GB.
+ */
+public class MappedCarMap implements ParsableMap<String, Car>, Closeable {
+
+    public static final String FILE_EXTENSION = ".hmap";
+    public static final int DEFAULT_INITIAL_CAPACITY = 8;
+    public static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    public static final HashManager.HashType DEFAULT_HASH_TYPE = HashManager.HashType.DIVISION;
+
+    private static final int MAGIC = 0x484D4150;
+    private static final int VERSION = 1;
+    // Offsets of the header fields
+    private static final int HASH_TYPE = 8;
+    private static final int LOAD_FACTOR = 12;
+    private static final int CAPACITY = 16;
+    private static final int SIZE = 20;
+    private static final int BUCKETS = 24;
+    private static final int HEAP_END = 28;
+    private static final int REHASHES = 32;
+    private static final int LAST_UPDATED = 36;
+    private static final int GARBAGE = 40;
+    private static final int HEADER_SIZE = 64;
+    // Offsets of the entry fields
+    private static final int NEXT = 0;
+    private static final int HASH = 4;
+    private static final int KEY = 8;
+    // The heap is not compacted while the garbage is smaller
+    private static final int MIN_COMPACTED_GARBAGE = 4096;
+
+    private final String filePath;
+    private final RandomAccessFile file;
+    private MappedByteBuffer buffer;
+    // Hash function, the one stored in the file is used
+    private final HashManager.HashType ht;
+
+    /**
+     * Opens the hash table file or creates it with the default parameters if it does not exist.
+     *
+     * @param filePath
+     */
+    public MappedCarMap(String filePath) {
+        this(filePath, DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, DEFAULT_HASH_TYPE);
+    }
+
+    /**
+     * Opens the hash table file or creates it if it does not exist. The parameters are used only
+     * for a new file, an existing file keeps its own.
+     *
+     * @param filePath
+     * @param initialCapacity
+     * @param loadFactor
+     * @param ht
+     */
+    public MappedCarMap(String filePath, int initialCapacity, float loadFactor, HashManager.HashType ht) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+
+        if ((loadFactor <= 0.0) || (loadFactor > 1.0)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+
+        this.filePath = filePath;
+        try {
+            boolean exists = Files.exists(Paths.get(filePath)) && Files.size(Paths.get(filePath)) > 0;
+            file = new RandomAccessFile(filePath, "rw");
+            if (exists) {
+                map(file.length());
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                    file.close();
+                    throw new IllegalArgumentException("Not a hash table file: " + filePath);
+                }
+            } else {
+                map(HEADER_SIZE + (long) initialCapacity * Integer.BYTES);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(HASH_TYPE, ht.ordinal());
+                buffer.putFloat(LOAD_FACTOR, loadFactor);
+                buffer.putInt(HEAP_END, HEADER_SIZE);
+                buffer.putInt(BUCKETS, allocate(initialCapacity * Integer.BYTES));
+                buffer.putInt(CAPACITY, initialCapacity);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.ht = HashManager.HashType.values()[buffer.getInt(HASH_TYPE)];
+    }
+
+    /**
+     * Checks if the hash table is empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of key-value pairs in the hash table.
+     *
+     * @return the number of key-value pairs.
+     */
+    @Override
+    public int size() {
+        return buffer.getInt(SIZE);
+    }
+
+    /**
+     * Clears hash table. The heap is emptied, but the file is not truncated.
+     */
+    @Override
+    public void clear() {
+        int capacity = buffer.getInt(CAPACITY);
+        buffer.putInt(HEAP_END, HEADER_SIZE);
+        buffer.putInt(BUCKETS, allocate(capacity * Integer.BYTES));
+        buffer.putInt(SIZE, 0);
+        buffer.putInt(REHASHES, 0);
+        buffer.putInt(LAST_UPDATED, 0);
+        buffer.putInt(GARBAGE, 0);
+    }
+
+    @Override
+    public boolean contains(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in contains(K key)");
+        }
+
+        return findEntry(key.hashCode(), encode(key)) != 0;
+    }
+
+    @Override
+    public Car put(String key, String value) {
+        return put(key, new Car(value));
+    }
+
+    @Override
+    public Car put(String key, Car value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key or value is null in put(K key, V value)");
+        }
+
+        int hash = key.hashCode();
+        byte[] keyBytes = encode(key);
+        byte[] make = encode(value.getMake());
+        byte[] model = encode(value.getModel());
+        int entrySize = KEY + 3 * Short.BYTES + keyBytes.length + make.length + model.length
+                + 2 * Integer.BYTES + Double.BYTES;
+        int index = HashManager.hash(hash, buffer.getInt(CAPACITY), ht);
+        int old = findEntry(hash, keyBytes);
+        if (old != 0 && entrySize(old) == entrySize) {
+            writeEntry(old, buffer.getInt(old + NEXT), hash, keyBytes, make, model, value);
+            buffer.putInt(LAST_UPDATED, index);
+            return value;
+        }
+        if (old != 0) {
+            unlink(index, old);
+            buffer.putInt(SIZE, size() - 1);
+            buffer.putInt(GARBAGE, buffer.getInt(GARBAGE) + entrySize(old));
+        }
+
+        int entry = allocate(entrySize);
+        int bucket = bucket(index);
+        writeEntry(entry, buffer.getInt(bucket), hash, keyBytes, make, model, value);
+        buffer.putInt(bucket, entry);
+        buffer.putInt(SIZE, size() + 1);
+        buffer.putInt(LAST_UPDATED, index);
+
+        if (size() > buffer.getInt(CAPACITY) * buffer.getFloat(LOAD_FACTOR)) {
+            rehash();
+        }
+        compactIfNeeded();
+        return value;
+    }
+
+    @Override
+    public Car get(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in get(K key)");
+        }
+
+        int entry = findEntry(key.hashCode(), encode(key));
+        return entry == 0 ? null : readCar(entry);
+    }
+
+    @Override
+    public Car remove(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in remove(K key)");
+        }
+
+        int hash = key.hashCode();
+        int entry = findEntry(hash, encode(key));
+        if (entry == 0) {
+            return null;
+        }
+
+        int index = HashManager.hash(hash, buffer.getInt(CAPACITY), ht);
+        Car value = readCar(entry);
+        unlink(index, entry);
+        buffer.putInt(SIZE, size() - 1);
+        buffer.putInt(LAST_UPDATED, index);
+        buffer.putInt(GARBAGE, buffer.getInt(GARBAGE) + entrySize(entry));
+        compactIfNeeded();
+        return value;
+    }
+
+    @Override
+    public boolean replace(String key, Car oldValue, Car newValue) {
+        if (key == null || newValue == null) {
+            return false;
+        }
+
+        Car value = get(key);
+        if (value == null || !value.equals(oldValue)) {
+            return false;
+        }
+
+        put(key, newValue);
+        return true;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i < buffer.getInt(CAPACITY); i++) {
+            for (int entry = buffer.getInt(bucket(i)); entry != 0; entry = buffer.getInt(entry + NEXT)) {
+                if (value.equals(readCar(entry))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fills the hash table with the cars of the text file, one car per line. A file with FILE_EXTENSION
+     * is not parsed: the file is a hash table itself, so its entries are copied.
+     *
+     * @param filePath
+     */
+    @Override
+    public void load(String filePath) {
+        if (filePath == null || filePath.length() == 0 || isSameFile(filePath)) {
+            return;
+        }
+        clear();
+        if (filePath.endsWith(FILE_EXTENSION)) {
+            try (MappedCarMap other = new MappedCarMap(filePath)) {
+                other.forEachEntry(entry -> put(other.readKey(entry), other.readCar(entry)));
+            } catch (IllegalArgumentException | UncheckedIOException e) {
+                Ks.ern("File reading error: " + e.getLocalizedMessage());
+            }
+            return;
+        }
+        try (BufferedReader fReader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            fReader.lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .forEach(line -> put(CarsGenerator.generateId(), line));
+        } catch (FileNotFoundException e) {
+            Ks.ern("Suitable data file not found: " + e.getLocalizedMessage());
+        } catch (IOException | UncheckedIOException e) {
+            Ks.ern("File reading error: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Forces the changes of the mapped region to the disk. If another file is given, the hash table file
+     * is copied to it afterwards.
+     *
+     * @param filePath
+     */
+    @Override
+    public void save(String filePath) {
+        buffer.force();
+        if (filePath == null || filePath.isEmpty() || isSameFile(filePath)) {
+            return;
+        }
+        try {
+            Files.copy(Paths.get(this.filePath), Paths.get(filePath), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Ks.ern("File writing error: " + e.getLocalizedMessage());
+        }
+    }
+
+    private boolean isSameFile(String filePath) {
+        return Paths.get(filePath).toAbsolutePath().normalize().equals(Paths.get(this.filePath).toAbsolutePath().normalize());
+    }
+
+    /**
+     * Forces the changes to the disk and closes the file.
+     */
+    @Override
+    public void close() {
+        buffer.force();
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Prints the hash table to the Ks.ouf("")
+     *
+     * @param delimiter delimiter of the string
+     */
+    @Override
+    public void println(String delimiter) {
+        if (isEmpty()) {
+            Ks.oun("The hash table is empty");
+            return;
+        }
+
+        Ks.oufln("****** Hash table ******");
+        Ks.printMapModel(delimiter, getMapModel());
+        Ks.oufln("****** The total number of key-value pairs is " + size());
+    }
+
+    @Override
+    public String[][] getMapModel() {
+        String[][] result = new String[buffer.getInt(CAPACITY)][];
+        for (int i = 0; i < result.length; i++) {
+            List<String> list = new ArrayList<>();
+            list.add("[ " + i + " ]");
+            for (int entry = buffer.getInt(bucket(i)); entry != 0; entry = buffer.getInt(entry + NEXT)) {
+                list.add(ARROW);
+                list.add(readKey(entry) + "=" + readCar(entry));
+            }
+            result[i] = list.toArray(new String[0]);
+        }
+        return result;
+    }
+
+    /**
+     * Performs the action for each key-value pair of the hash table.
+     * The key and the car are decoded from the file for each pair.
+     *
+     * @param action
+     */
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Car> action) {
+        forEachEntry(entry -> action.accept(readKey(entry), readCar(entry)));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        forEachEntry(entry -> result.append(readKey(entry)).append("=").append(readCar(entry))
+                .append(System.lineSeparator()));
+        return result.toString();
+    }
+
+    /**
+     * Places a twice larger bucket array at the end of the heap and relinks the entries into it.
+     */
+    private void rehash() {
+        int oldCapacity = buffer.getInt(CAPACITY);
+        int oldBuckets = buffer.getInt(BUCKETS);
+        int capacity = oldCapacity * 2;
+        int buckets = allocate(capacity * Integer.BYTES);
+        for (int i = 0; i < oldCapacity; i++) {
+            int entry = buffer.getInt(oldBuckets + i * Integer.BYTES);
+            while (entry != 0) {
+                int next = buffer.getInt(entry + NEXT);
+                int bucket = buckets + HashManager.hash(buffer.getInt(entry + HASH), capacity, ht) * Integer.BYTES;
+                buffer.putInt(entry + NEXT, buffer.getInt(bucket));
+                buffer.putInt(bucket, entry);
+                entry = next;
+            }
+        }
+        buffer.putInt(BUCKETS, buckets);
+        buffer.putInt(CAPACITY, capacity);
+        buffer.putInt(REHASHES, buffer.getInt(REHASHES) + 1);
+        buffer.putInt(GARBAGE, buffer.getInt(GARBAGE) + oldCapacity * Integer.BYTES);
+    }
+
+    /**
+     * Slides the live entries to the beginning of the heap in the order of their offsets, when the garbage
+     * takes more than half of the heap, then places a new bucket array after them and relinks the entries.
+     * An entry never moves to a higher offset, so it is copied over the garbage before it.
+     */
+    private void compactIfNeeded() {
+        int garbage = buffer.getInt(GARBAGE);
+        if (garbage <= MIN_COMPACTED_GARBAGE || garbage * 2L <= buffer.getInt(HEAP_END) - HEADER_SIZE) {
+            return;
+        }
+
+        int[] entries = new int[size()];
+        int[] count = {0};
+        forEachEntry(entry -> entries[count[0]++] = entry);
+        Arrays.sort(entries);
+        int end = HEADER_SIZE;
+        for (int entry : entries) {
+            int entrySize = entrySize(entry);
+            for (int i = 0; i < entrySize; i++) {
+                buffer.put(end + i, buffer.get(entry + i));
+            }
+            end += entrySize;
+        }
+
+        int capacity = buffer.getInt(CAPACITY);
+        buffer.putInt(HEAP_END, end);
+        buffer.putInt(BUCKETS, allocate(capacity * Integer.BYTES));
+        for (int entry = HEADER_SIZE; entry < end; entry += entrySize(entry)) {
+            int bucket = bucket(HashManager.hash(buffer.getInt(entry + HASH), capacity, ht));
+            buffer.putInt(entry + NEXT, buffer.getInt(bucket));
+            buffer.putInt(bucket, entry);
+        }
+        buffer.putInt(GARBAGE, 0);
+    }
+
+    /**
+     * Takes the zeroed space of the given size at the end of the heap, the file is enlarged if needed.
+     *
+     * @return offset of the space
+     */
+    private int allocate(int size) {
+        int offset = buffer.getInt(HEAP_END);
+        long end = (long) offset + size;
+        if (end > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Hash table file is full: " + filePath);
+        }
+        if (end > buffer.capacity()) {
+            try {
+                map(Math.min(Integer.MAX_VALUE, Math.max(end, 2L * buffer.capacity())));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        for (int i = offset; i < end; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.putInt(HEAP_END, (int) end);
+        return offset;
+    }
+
+    private void map(long size) throws IOException {
+        if (file.length() < size) {
+            file.setLength(size);
+        }
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private int bucket(int index) {
+        return buffer.getInt(BUCKETS) + index * Integer.BYTES;
+    }
+
+    /**
+     * Searches the entry comparing the hash codes and then the encoded key bytes.
+     *
+     * @return offset of the entry, or 0 if the key is absent
+     */
+    private int findEntry(int hash, byte[] keyBytes) {
+        int index = HashManager.hash(hash, buffer.getInt(CAPACITY), ht);
+        for (int entry = buffer.getInt(bucket(index)); entry != 0; entry = buffer.getInt(entry + NEXT)) {
+            if (buffer.getInt(entry + HASH) == hash && keyEquals(entry, keyBytes)) {
+                return entry;
+            }
+        }
+        return 0;
+    }
+
+    private boolean keyEquals(int entry, byte[] keyBytes) {
+        if (buffer.getShort(entry + KEY) != keyBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (buffer.get(entry + KEY + Short.BYTES + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void unlink(int index, int entry) {
+        int bucket = bucket(index);
+        if (buffer.getInt(bucket) == entry) {
+            buffer.putInt(bucket, buffer.getInt(entry + NEXT));
+            return;
+        }
+        for (int previous = buffer.getInt(bucket); previous != 0; previous = buffer.getInt(previous + NEXT)) {
+            if (buffer.getInt(previous + NEXT) == entry) {
+                buffer.putInt(previous + NEXT, buffer.getInt(entry + NEXT));
+                return;
+            }
+        }
+    }
+
+    private void writeEntry(int entry, int next, int hash, byte[] keyBytes, byte[] make, byte[] model, Car car) {
+        buffer.putInt(entry + NEXT, next);
+        buffer.putInt(entry + HASH, hash);
+        int offset = entry + KEY;
+        for (byte[] bytes : new byte[][]{keyBytes, make, model}) {
+            buffer.putShort(offset, (short) bytes.length);
+            offset += Short.BYTES;
+            for (byte b : bytes) {
+                buffer.put(offset++, b);
+            }
+        }
+        buffer.putInt(offset, car.getYear());
+        buffer.putInt(offset + Integer.BYTES, car.getMileage());
+        buffer.putDouble(offset + 2 * Integer.BYTES, car.getPrice());
+    }
+
+    private int entrySize(int entry) {
+        int offset = entry + KEY;
+        for (int i = 0; i < 3; i++) {
+            offset += Short.BYTES + buffer.getShort(offset);
+        }
+        return offset + 2 * Integer.BYTES + Double.BYTES - entry;
+    }
+
+    private String readKey(int entry) {
+        return readString(entry + KEY);
+    }
+
+    private Car readCar(int entry) {
+        int offset = entry + KEY;
+        offset += Short.BYTES + buffer.getShort(offset);
+        String make = readString(offset);
+        offset += Short.BYTES + buffer.getShort(offset);
+        String model = readString(offset);
+        offset += Short.BYTES + buffer.getShort(offset);
+        return new Car(make, model, buffer.getInt(offset), buffer.getInt(offset + Integer.BYTES),
+                buffer.getDouble(offset + 2 * Integer.BYTES));
+    }
+
+    private String readString(int offset) {
+        byte[] bytes = new byte[buffer.getShort(offset)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + Short.BYTES + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void forEachEntry(IntConsumer action) {
+        for (int i = 0; i < buffer.getInt(CAPACITY); i++) {
+            for (int entry = buffer.getInt(bucket(i)); entry != 0; entry = buffer.getInt(entry + NEXT)) {
+                action.accept(entry);
+            }
+        }
+    }
+
+    private static byte[] encode(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String is too long for the hash table file: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the number of rehashes occurred in the hash table.
+     *
+     * @return number of rehashes.
+     */
+    @Override
+    public int getRehashesCounter() {
+        return buffer.getInt(REHASHES);
+    }
+
+    /**
+     * Returns the capacity of hash table.
+     *
+     * @return capacity of hash table.
+     */
+    @Override
+    public int getTableCapacity() {
+        return buffer.getInt(CAPACITY);
+    }
+
+    /**
+     * Returns the index of last update element of the hash table.
+     *
+     * @return the index of last update element of the hash table.
+     */
+    @Override
+    public int getLastUpdated() {
+        return buffer.getInt(LAST_UPDATED);
+    }
+
+    /**
+     * Returns the number of occupied places in the hash table.
+     *
+     * @return the number of occupied places in the hash table.
+     */
+    @Override
+    public int getNumberOfOccupied() {
+        int occupied = 0;
+        for (int i = 0; i < buffer.getInt(CAPACITY); i++) {
+            if (buffer.getInt(bucket(i)) != 0) {
+                occupied++;
+            }
+        }
+        return occupied;
+    }
+
+    /**
+     * Returns the maximum length of the chain.
+     *
+     * @return Maximum chain length.
+     */
+    @Override
+    public int getMaxChainSize() {
+        int max = 0;
+        for (int i = 0; i < buffer.getInt(CAPACITY); i++) {
+            int chainSize = 0;
+            for (int entry = buffer.getInt(bucket(i)); entry != 0; entry = buffer.getInt(entry + NEXT)) {
+                chainSize++;
+            }
+            max = Math.max(max, chainSize);
+        }
+        return max;
+    }
+}
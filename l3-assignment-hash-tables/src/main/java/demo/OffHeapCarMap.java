@@ -0,0 +1,481 @@
+package demo;
+
+import utils.EvaluableMap;
+import utils.HashManager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * The hash table of cars keeping the keys and the cars outside of the Java heap.
+ * Every key-value pair is encoded into a record appended to a slab, i.e. a direct ByteBuffer of SLAB_SIZE bytes:
+ * <pre>
+ * [short key length][key][short make length][make][short model length][model][int year][int mileage][double price]
+ * </pre>
+ * The strings are encoded in UTF-8. The index on the heap is an open addressing table with linear probing
+ * holding only the primitive addresses of the records and the hash codes of the keys, so the garbage
+ * collector has a few large arrays to trace instead of millions of small objects.
+ * Car objects are created only when they are read by get.
+ * Records are never changed: a replaced or removed record is left as garbage in its slab
+ * until the slabs are compacted, which happens when the garbage takes more than half of them.
+ */
+public class OffHeapCarMap implements EvaluableMap<String, Car> {
+
+    public static final int DEFAULT_INITIAL_CAPACITY = 8;
+    public static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    public static final HashManager.HashType DEFAULT_HASH_TYPE = HashManager.HashType.DIVISION;
+    // The size of one slab, a record never crosses the slab boundary
+    public static final int SLAB_SIZE = 1 << 20;
+
+    // Empty slot of the index
+    private static final long EMPTY = -1;
+
+    // Slabs of the records
+    protected List<ByteBuffer> slabs = new ArrayList<>();
+    // Addresses of the records: the slab number in the high and the offset in the low 32 bits
+    protected long[] addresses;
+    // Hash codes of the keys
+    protected int[] hashes;
+    // The amount of key-value pairs
+    protected int size = 0;
+    // Load factor
+    protected float loadFactor;
+    // Hash function
+    protected HashManager.HashType ht;
+    //--------------------------------------------------------------------------
+    //  Parameters of hash table
+    //--------------------------------------------------------------------------
+    // The amount of rehashes
+    protected int rehashesCounter = 0;
+    // The index of last updated element
+    protected int lastUpdated = 0;
+    // The number of bytes written into the slabs
+    protected long offHeapBytes = 0;
+    // The number of bytes taken by the replaced and removed records
+    protected long garbageBytes = 0;
+
+    public OffHeapCarMap() {
+        this(DEFAULT_HASH_TYPE);
+    }
+
+    public OffHeapCarMap(HashManager.HashType ht) {
+        this(DEFAULT_INITIAL_CAPACITY, ht);
+    }
+
+    public OffHeapCarMap(int initialCapacity, HashManager.HashType ht) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR, ht);
+    }
+
+    public OffHeapCarMap(int initialCapacity, float loadFactor, HashManager.HashType ht) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+
+        if ((loadFactor <= 0.0) || (loadFactor > 1.0)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+
+        this.addresses = new long[initialCapacity];
+        Arrays.fill(addresses, EMPTY);
+        this.hashes = new int[initialCapacity];
+        this.loadFactor = loadFactor;
+        this.ht = ht;
+    }
+
+    /**
+     * Checks if the hash table is empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of key-value pairs in the hash table.
+     *
+     * @return the number of key-value pairs.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Clears hash table. The slabs are released to the garbage collector.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(addresses, EMPTY);
+        slabs = new ArrayList<>();
+        size = 0;
+        lastUpdated = 0;
+        rehashesCounter = 0;
+        offHeapBytes = 0;
+        garbageBytes = 0;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in contains(K key)");
+        }
+
+        return findPosition(key.hashCode(), encode(key)) != -1;
+    }
+
+    @Override
+    public Car put(String key, Car value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key or value is null in put(K key, V value)");
+        }
+
+        byte[] keyBytes = encode(key);
+        long address = append(keyBytes, value);
+        int hash = key.hashCode();
+        int position = findPosition(hash, keyBytes);
+        if (position != -1) {
+            garbageBytes += recordSize(addresses[position]);
+            addresses[position] = address;
+            lastUpdated = position;
+            compactIfNeeded();
+            return value;
+        }
+
+        if (size == addresses.length) {
+            rehash();
+        }
+        position = findFreePosition(hash);
+        addresses[position] = address;
+        hashes[position] = hash;
+        lastUpdated = position;
+        size++;
+        if (size > addresses.length * loadFactor) {
+            rehash();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the car associated with the key, the car is decoded from its record.
+     *
+     * @param key
+     * @return the car associated with the key.
+     */
+    @Override
+    public Car get(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in get(K key)");
+        }
+
+        int position = findPosition(key.hashCode(), encode(key));
+        return position == -1 ? null : decodeCar(addresses[position]);
+    }
+
+    /**
+     * Removes the pair from the hash table. The following entries of the cluster are shifted back into the hole.
+     *
+     * @param key
+     * @return value associated with key or null, if no value is associated with the key.
+     */
+    @Override
+    public Car remove(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in remove(K key)");
+        }
+
+        int hole = findPosition(key.hashCode(), encode(key));
+        if (hole == -1) {
+            return null;
+        }
+
+        Car value = decodeCar(addresses[hole]);
+        garbageBytes += recordSize(addresses[hole]);
+        addresses[hole] = EMPTY;
+        for (int next = (hole + 1) % addresses.length; addresses[next] != EMPTY; next = (next + 1) % addresses.length) {
+            int home = HashManager.hash(hashes[next], addresses.length, ht);
+            if ((next - home + addresses.length) % addresses.length >= (next - hole + addresses.length) % addresses.length) {
+                addresses[hole] = addresses[next];
+                hashes[hole] = hashes[next];
+                addresses[next] = EMPTY;
+                hole = next;
+            }
+        }
+        size--;
+        lastUpdated = hole;
+        compactIfNeeded();
+        return value;
+    }
+
+    @Override
+    public boolean replace(String key, Car oldValue, Car newValue) {
+        if (key == null || newValue == null) {
+            return false;
+        }
+
+        Car value = get(key);
+        if (value == null || !value.equals(oldValue)) {
+            return false;
+        }
+
+        put(key, newValue);
+        return true;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        for (long address : addresses) {
+            if (address != EMPTY && value.equals(decodeCar(address))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Performs the action for each key-value pair of the hash table.
+     * The key and the car are decoded from the slab for each pair.
+     *
+     * @param action
+     */
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Car> action) {
+        for (long address : addresses) {
+            if (address != EMPTY) {
+                action.accept(decodeKey(address), decodeCar(address));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (long address : addresses) {
+            if (address != EMPTY) {
+                if (result.length() > 0) {
+                    result.append(System.lineSeparator());
+                }
+                result.append(decodeKey(address)).append("=").append(decodeCar(address));
+            }
+        }
+        return result.toString();
+    }
+
+    private void rehash() {
+        long[] oldAddresses = addresses;
+        int[] oldHashes = hashes;
+        addresses = new long[oldAddresses.length * 2];
+        Arrays.fill(addresses, EMPTY);
+        hashes = new int[oldAddresses.length * 2];
+        for (int i = 0; i < oldAddresses.length; i++) {
+            if (oldAddresses[i] != EMPTY) {
+                int position = findFreePosition(oldHashes[i]);
+                addresses[position] = oldAddresses[i];
+                hashes[position] = oldHashes[i];
+            }
+        }
+        rehashesCounter++;
+    }
+
+    /**
+     * Copies the live records into the new slabs, when the garbage takes more than half of the written bytes.
+     */
+    private void compactIfNeeded() {
+        if (garbageBytes <= SLAB_SIZE || garbageBytes * 2 <= offHeapBytes) {
+            return;
+        }
+
+        List<ByteBuffer> oldSlabs = slabs;
+        slabs = new ArrayList<>();
+        offHeapBytes = 0;
+        garbageBytes = 0;
+        for (int i = 0; i < addresses.length; i++) {
+            if (addresses[i] != EMPTY) {
+                ByteBuffer record = oldSlabs.get(slabOf(addresses[i])).duplicate();
+                record.limit(offsetOf(addresses[i]) + recordSize(oldSlabs, addresses[i]));
+                record.position(offsetOf(addresses[i]));
+                addresses[i] = write(record);
+            }
+        }
+    }
+
+    /**
+     * Searches the key comparing the hash codes and then the encoded key bytes, no String is decoded.
+     *
+     * @return position of the key, or -1 if the key is absent
+     */
+    private int findPosition(int hash, byte[] keyBytes) {
+        int position = HashManager.hash(hash, addresses.length, ht);
+        for (int i = 0; i < addresses.length && addresses[position] != EMPTY; i++) {
+            if (hashes[position] == hash && keyEquals(addresses[position], keyBytes)) {
+                return position;
+            }
+            position = (position + 1) % addresses.length;
+        }
+        return -1;
+    }
+
+    private int findFreePosition(int hash) {
+        int position = HashManager.hash(hash, addresses.length, ht);
+        while (addresses[position] != EMPTY) {
+            position = (position + 1) % addresses.length;
+        }
+        return position;
+    }
+
+    private boolean keyEquals(long address, byte[] keyBytes) {
+        ByteBuffer slab = slabs.get(slabOf(address));
+        int offset = offsetOf(address);
+        if (slab.getShort(offset) != keyBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (slab.get(offset + Short.BYTES + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encodes the pair into a new record.
+     *
+     * @return address of the record
+     */
+    private long append(byte[] keyBytes, Car car) {
+        byte[] make = encode(car.getMake());
+        byte[] model = encode(car.getModel());
+        ByteBuffer record = ByteBuffer.allocate(3 * Short.BYTES + keyBytes.length + make.length + model.length
+                + 2 * Integer.BYTES + Double.BYTES);
+        record.putShort((short) keyBytes.length).put(keyBytes)
+                .putShort((short) make.length).put(make)
+                .putShort((short) model.length).put(model)
+                .putInt(car.getYear())
+                .putInt(car.getMileage())
+                .putDouble(car.getPrice());
+        record.flip();
+        return write(record);
+    }
+
+    /**
+     * Writes the record into the last slab, a new slab is allocated if the record does not fit into it.
+     */
+    private long write(ByteBuffer record) {
+        int length = record.remaining();
+        if (slabs.isEmpty() || slabs.get(slabs.size() - 1).remaining() < length) {
+            slabs.add(ByteBuffer.allocateDirect(Math.max(SLAB_SIZE, length)));
+        }
+        ByteBuffer slab = slabs.get(slabs.size() - 1);
+        long address = (long) (slabs.size() - 1) << 32 | slab.position();
+        slab.put(record);
+        offHeapBytes += length;
+        return address;
+    }
+
+    private String decodeKey(long address) {
+        ByteBuffer record = slabs.get(slabOf(address)).duplicate();
+        record.position(offsetOf(address));
+        return decodeString(record);
+    }
+
+    private Car decodeCar(long address) {
+        ByteBuffer record = slabs.get(slabOf(address)).duplicate();
+        record.position(offsetOf(address));
+        record.position(record.position() + Short.BYTES + record.getShort(record.position()));
+        String make = decodeString(record);
+        String model = decodeString(record);
+        return new Car(make, model, record.getInt(), record.getInt(), record.getDouble());
+    }
+
+    private int recordSize(long address) {
+        return recordSize(slabs, address);
+    }
+
+    private static int recordSize(List<ByteBuffer> slabs, long address) {
+        ByteBuffer slab = slabs.get(slabOf(address));
+        int offset = offsetOf(address);
+        int size = 0;
+        for (int i = 0; i < 3; i++) {
+            size += Short.BYTES + slab.getShort(offset + size);
+        }
+        return size + 2 * Integer.BYTES + Double.BYTES;
+    }
+
+    private static String decodeString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getShort()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String is too long for the off-heap record: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static int slabOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+
+    /**
+     * Returns the number of rehashes occurred in the hash table.
+     *
+     * @return number of rehashes.
+     */
+    @Override
+    public int getRehashesCounter() {
+        return rehashesCounter;
+    }
+
+    /**
+     * Returns the capacity of hash table.
+     *
+     * @return capacity of hash table.
+     */
+    @Override
+    public int getTableCapacity() {
+        return addresses.length;
+    }
+
+    /**
+     * Returns the index of last update element of the hash table.
+     *
+     * @return the index of last update element of the hash table.
+     */
+    @Override
+    public int getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * Returns the number of occupied places in the hash table.
+     *
+     * @return the number of occupied places in the hash table.
+     */
+    @Override
+    public int getNumberOfOccupied() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes written into the off-heap slabs, including the records not compacted yet.
+     *
+     * @return number of off-heap bytes used.
+     */
+    @Override
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+}
@@ -2,6 +2,7 @@ package gui;
 
 import demo.Car;
 import demo.CarsGenerator;
+import demo.MappedCarMap;
 import utils.*;
 
 import javax.swing.*;
@@ -11,6 +12,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.AdjustmentEvent;
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.stream.IntStream;
@@ -79,7 +81,10 @@ public class MainWindow extends JFrame implements ActionListener {
         Stream.of(MESSAGES.getString("cmbCollisionType1"),
                         MESSAGES.getString("cmbCollisionType2"),
                         MESSAGES.getString("cmbCollisionType3"),
-                        MESSAGES.getString("cmbCollisionType4"))
+                        MESSAGES.getString("cmbCollisionType4"),
+                        MESSAGES.getString("cmbCollisionType5"),
+                        MESSAGES.getString("cmbCollisionType6"),
+                        MESSAGES.getString("cmbCollisionType7"))
                 .forEach(cmbCollisionTypes::addItem);
         cmbCollisionTypes.addActionListener(this);
 
@@ -226,13 +231,13 @@ public class MainWindow extends JFrame implements ActionListener {
                     @Override
                     public boolean accept(File file) {
                         String filename = file.getName();
-                        // Only directories and txt files are shown
-                        return file.isDirectory() || filename.endsWith(".txt");
+                        // Only directories, txt and hash table files are shown
+                        return file.isDirectory() || filename.endsWith(".txt") || filename.endsWith(MappedCarMap.FILE_EXTENSION);
                     }
 
                     @Override
                     public String getDescription() {
-                        return "*.txt";
+                        return "*.txt, *" + MappedCarMap.FILE_EXTENSION;
                     }
                 });
                 int returnVal = fc.showOpenDialog(this);
@@ -322,8 +327,16 @@ public class MainWindow extends JFrame implements ActionListener {
         IntStream.of(1, 2).forEach(p -> panButtons.getButtons().get(p).setEnabled(false));
         // Duomenų nuskaitymas iš parametrų lentelės (žalios)
         readMapParameters();
-        // Empty hash map is created depending on the type of collision handling
-        createMap();
+        if (map instanceof MappedCarMap) {
+            ((MappedCarMap) map).close();
+        }
+        if (filePath != null && filePath.endsWith(MappedCarMap.FILE_EXTENSION)) {
+            // The hash table file is opened as it is, with its own parameters
+            map = new MappedCarMap(filePath);
+        } else {
+            // Empty hash map is created depending on the type of collision handling
+            createMap();
+        }
         // If no file is specified - cars are generated and placed in the hash map
         if (filePath == null) {
             carsGenerator.generateShuffleIdsAndCars(sizeOfGenSet);//, sizeOfInitialSubSet);
@@ -345,10 +358,11 @@ public class MainWindow extends JFrame implements ActionListener {
         }
 
         // Hash map displayed in the table
+        String[][] mapModel = map.getMapModel();
         table.setModel(
-                map.getMapModel(),
+                mapModel,
                 panParam1.getTfOfTable().get(5).getText(),
-                map.getMaxChainSize() == -1 ? 1 : map.getMaxChainSize(),
+                maxChainSize(mapModel),
                 colWidth
         );
         // Hash table parameters to be updated (yellow table)
@@ -364,16 +378,28 @@ public class MainWindow extends JFrame implements ActionListener {
                 id, // key
                 car // value
         );
+        String[][] mapModel = map.getMapModel();
         table.setModel(
-                map.getMapModel(),
+                mapModel,
                 panParam1.getTfOfTable().get(5).getText(),
-                map.getMaxChainSize() == -1 ? 1 : map.getMaxChainSize(),
+                maxChainSize(mapModel),
                 colWidth
         );
         updateHashtableParameters(true);
         KsGui.oun(taEvents, id + "=" + car, MESSAGES.getString("mapPut"));
     }
 
+    /**
+     * Returns the number of key-value pairs in the longest row of the hash table view.
+     * The maximum chain size of the map is not enough: a tree bin is longer than its height.
+     */
+    private static int maxChainSize(String[][] mapModel) {
+        return Math.max(1, Arrays.stream(mapModel)
+                .mapToInt(row -> (row.length - 1) / 2)
+                .max()
+                .orElse(1));
+    }
+
     private void readMapParameters() {
         int i = 0;
         List<JTextField> tfs = panParam1.getTfOfTable();
@@ -427,6 +453,15 @@ public class MainWindow extends JFrame implements ActionListener {
             case 3:
                 map = new ParsableHashMapOa<>(String::new, Car::new, initialCapacity, loadFactor, ht, HashMapOa.OpenAddressingType.DOUBLE_HASHING);
                 break;
+            case 4:
+                map = new ParsableHashMapOa<>(String::new, Car::new, initialCapacity, loadFactor, ht, HashMapOa.OpenAddressingType.ROBIN_HOOD);
+                break;
+            case 5:
+                map = new ParsableHopscotchHashMap<>(String::new, Car::new, initialCapacity, ht);
+                break;
+            case 6:
+                map = new ParsableHashMapOaSoa<>(String::new, Car::new, initialCapacity, loadFactor, ht, HashMapOa.OpenAddressingType.LINEAR);
+                break;
             default:
                 IntStream.of(1, 2).forEach(p -> panButtons.getButtons().get(p).setEnabled(false));
                 throw new ValidationException("notImplemented");
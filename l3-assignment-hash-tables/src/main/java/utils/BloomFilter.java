@@ -0,0 +1,150 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * The Bloom filter of the key hash codes. It answers whether a key may be in the hash table:
+ * false means the key is surely absent, true means it may be present. The keys can not be taken
+ * out of the filter, so the hash table rebuilds it when more keys than expected were added.
+ */
+public final class BloomFilter {
+
+    // bits of the filter, their number is a power of two
+    private final long[] bits;
+    // bits.length * 64 - 1
+    private final int mask;
+    // the number of bits set for each key
+    private final int hashFunctionsCount;
+    private final int expectedSize;
+    private final double falsePositiveRate;
+    // the number of the keys added since the filter was created or cleared
+    private int addedCounter = 0;
+
+    /**
+     * Creates the filter sized so the expected number of keys gives at most the false positive rate.
+     *
+     * @param expectedSize expected number of keys.
+     * @param falsePositiveRate the part of the absent keys which the filter lets through, 0 &lt; rate &lt; 1.
+     */
+    public BloomFilter(int expectedSize, double falsePositiveRate) {
+        if (expectedSize <= 0) {
+            throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("Illegal false positive rate: " + falsePositiveRate);
+        }
+
+        // m = -n ln p / (ln 2)^2 bits, rounded up to a power of two, so the bit index is masked
+        double optimalBits = -expectedSize * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        int bitsCount = Integer.highestOneBit((int) Math.min(Math.max(optimalBits, 64), 1 << 30) - 1) << 1;
+        this.bits = new long[bitsCount >>> 6];
+        this.mask = bitsCount - 1;
+        // k = m / n ln 2 for the bits the formula asked for
+        this.hashFunctionsCount = Math.max(1, (int) Math.round(optimalBits / expectedSize * Math.log(2)));
+        this.expectedSize = expectedSize;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Adds the hash code of the key.
+     *
+     * @param hash hash code of the key.
+     */
+    public void add(int hash) {
+        long mixed = mix(hash);
+        int h1 = (int) mixed;
+        // odd step visits different bits of the power of two table
+        int h2 = (int) (mixed >>> 32) | 1;
+        for (int i = 0; i < hashFunctionsCount; i++) {
+            int bit = (h1 + i * h2) & mask;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+        addedCounter++;
+    }
+
+    /**
+     * Checks if the key of the hash code may have been added.
+     *
+     * @param hash hash code of the key.
+     * @return false if the key was surely not added, else true.
+     */
+    public boolean mightContain(int hash) {
+        long mixed = mix(hash);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32) | 1;
+        for (int i = 0; i < hashFunctionsCount; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Clears the filter.
+     */
+    public void clear() {
+        Arrays.fill(bits, 0);
+        addedCounter = 0;
+    }
+
+    /**
+     * Checks if more keys were added than the filter was sized for, so its false positive rate is exceeded.
+     *
+     * @return true if the filter should be rebuilt, else false.
+     */
+    public boolean isSaturated() {
+        return addedCounter > expectedSize;
+    }
+
+    /**
+     * Returns the number of keys the filter was sized for.
+     *
+     * @return expected number of keys.
+     */
+    public int getExpectedSize() {
+        return expectedSize;
+    }
+
+    /**
+     * Returns the false positive rate the filter was sized for.
+     *
+     * @return false positive rate.
+     */
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /**
+     * Returns the number of bits of the filter.
+     *
+     * @return number of bits.
+     */
+    public int getBitsCount() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the number of bits set for each key.
+     *
+     * @return number of hash functions.
+     */
+    public int getHashFunctionsCount() {
+        return hashFunctionsCount;
+    }
+
+    /**
+     * The hash codes of the neighbouring keys, e.g. the ids, differ in a few low bits,
+     * the finalizer of MurmurHash3 spreads them over all the 64 bits.
+     */
+    private static long mix(int hash) {
+        long x = hash;
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
@@ -0,0 +1,181 @@
+package utils;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * The base of the bounded caches built on the chained hash table. It counts the hits and the misses
+ * of the lookups and evicts the key-value pairs the subclass chooses, which links the nodes into its own
+ * access order lists in the afterNode hooks. The long chains are not converted into trees,
+ * since the tree bins replace the nodes of the lists.
+ *
+ * @param <K> key type of the cache
+ * @param <V> value type of the cache
+ */
+public abstract class BoundedCache<K, V> extends HashMap<K, V> {
+
+    /**
+     * Gets the key-value pairs evicted from the cache, e.g. to write them back to the slower storage.
+     *
+     * @param <K> key type of the cache
+     * @param <V> value type of the cache
+     */
+    @FunctionalInterface
+    public interface EvictionListener<K, V> {
+
+        /**
+         * Called after the key-value pair was removed to make room for the new one.
+         *
+         * @param key key.
+         * @param value value.
+         */
+        void evicted(K key, V value);
+    }
+
+    // the maximum number of key-value pairs in the cache
+    protected final int maxEntries;
+    // null if nobody listens
+    private EvictionListener<? super K, ? super V> evictionListener;
+    // the number of lookups which found the key
+    private int hitsCounter = 0;
+    // the number of lookups which did not find the key
+    private int missesCounter = 0;
+    // the number of evicted key-value pairs
+    private int evictionsCounter = 0;
+
+    protected BoundedCache(int maxEntries, int initialCapacity, float loadFactor, HashManager.HashType ht) {
+        super(initialCapacity, loadFactor, ht);
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Illegal max entries: " + maxEntries);
+        }
+
+        this.maxEntries = maxEntries;
+    }
+
+    public void setEvictionListener(EvictionListener<? super K, ? super V> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Returns the value associated with the key, the lookup is counted as a hit or a miss.
+     *
+     * @param key
+     * @return the value associated with the key.
+     */
+    @Override
+    public V get(K key) {
+        V value = super.get(key);
+        if (value == null) {
+            missesCounter++;
+        } else {
+            hitsCounter++;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached value of the key, or loads it by the mapping function and caches it.
+     * The lookup is counted as a hit or a miss like the get.
+     *
+     * @param key key.
+     * @param mappingFunction loads the value of the missing key.
+     * @return the value associated with the key after the call, or null.
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        int misses = missesCounter;
+        V value = super.computeIfAbsent(key, k -> {
+            missesCounter++;
+            return mappingFunction.apply(k);
+        });
+        if (missesCounter == misses) {
+            hitsCounter++;
+        }
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        hitsCounter = 0;
+        missesCounter = 0;
+        evictionsCounter = 0;
+    }
+
+    /**
+     * The cache never holds more than the max entries, so the table is not sized beyond them.
+     *
+     * @param expectedSize expected number of key-value pairs.
+     */
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        super.ensureCapacity(Math.min(expectedSize, maxEntries));
+    }
+
+    /**
+     * The snapshot shares the nodes with the map, which are moved within the access order lists, so it is not supported.
+     */
+    @Override
+    public Snapshot<K, V> snapshot() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support snapshots");
+    }
+
+    /**
+     * The workers would evict in parallel, so the pairs are added one by one.
+     */
+    @Override
+    public void putAllParallel(List<? extends K> keys, List<? extends V> values, ForkJoinPool pool) {
+        putAll(keys, values);
+    }
+
+    @Override
+    protected boolean usesTreeBins() {
+        return false;
+    }
+
+    /**
+     * Removes the node chosen by the subclass to keep the cache within its bound and tells the listener.
+     */
+    protected void evict(Node<K, V> node) {
+        remove(node.key);
+        evictionsCounter++;
+        if (evictionListener != null) {
+            evictionListener.evicted(node.key, node.value);
+        }
+    }
+
+    /**
+     * Returns the number of lookups (get and computeIfAbsent) which found the key.
+     *
+     * @return Number of hits.
+     */
+    @Override
+    public int getHitsCounter() {
+        return hitsCounter;
+    }
+
+    /**
+     * Returns the number of lookups (get and computeIfAbsent) which did not find the key.
+     *
+     * @return Number of misses.
+     */
+    @Override
+    public int getMissesCounter() {
+        return missesCounter;
+    }
+
+    /**
+     * Returns the number of key-value pairs evicted to keep the cache within its bound.
+     *
+     * @return Number of evictions.
+     */
+    @Override
+    public int getEvictionsCounter() {
+        return evictionsCounter;
+    }
+}
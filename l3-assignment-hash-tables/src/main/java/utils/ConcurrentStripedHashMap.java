@@ -0,0 +1,463 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * The thread-safe implementation of hash table based on separate chaining with lock striping.
+ * The table is split into STRIPES ranges of neighbouring chains, each range is guarded by its own lock,
+ * so the writers of different ranges do not wait for each other.
+ * Reads take no lock: the chains are published through an AtomicReferenceArray and the nodes have
+ * volatile value and next fields, so a reader always sees a consistent chain.
+ * Each stripe counts its own key-value pairs, so the writers do not share a counter; when a stripe
+ * grows beyond its share of the load factor and the whole table is over it as well,
+ * the table is resized while all the locks are held. The new table is built of copied nodes,
+ * so the readers still walking the old one are not disturbed.
+ *
+ * @param <K> key type of hash table
+ * @param <V> value type of hash table
+ */
+public class ConcurrentStripedHashMap<K, V> implements EvaluableMap<K, V> {
+
+    public static final int DEFAULT_INITIAL_CAPACITY = 16;
+    public static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    public static final HashManager.HashType DEFAULT_HASH_TYPE = HashManager.HashType.DIVISION;
+    public static final int DEFAULT_STRIPES = 16;
+
+    // hash table
+    protected volatile AtomicReferenceArray<Node<K, V>> table;
+    // locks of the chain ranges
+    protected final ReentrantLock[] locks;
+    // the amount of key-value pairs of each stripe
+    protected final AtomicIntegerArray counts;
+    // load factor
+    protected final float loadFactor;
+    // hash function
+    protected final HashManager.HashType ht;
+    //--------------------------------------------------------------------------
+    //  Parameters of a hash table
+    //--------------------------------------------------------------------------
+    // the amount of rehashes
+    protected volatile int rehashesCounter = 0;
+    // Chain index of the last placed key-value pair in the hash table
+    protected volatile int lastUpdatedChain = 0;
+
+    public ConcurrentStripedHashMap() {
+        this(DEFAULT_HASH_TYPE);
+    }
+
+    public ConcurrentStripedHashMap(HashManager.HashType ht) {
+        this(DEFAULT_INITIAL_CAPACITY, ht);
+    }
+
+    public ConcurrentStripedHashMap(int initialCapacity, HashManager.HashType ht) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR, ht, DEFAULT_STRIPES);
+    }
+
+    public ConcurrentStripedHashMap(int initialCapacity, float loadFactor, HashManager.HashType ht, int stripes) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+
+        if ((loadFactor <= 0.0) || (loadFactor > 1.0)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Illegal number of stripes: " + stripes);
+        }
+
+        // Every stripe guards at least one chain
+        this.table = new AtomicReferenceArray<>(Math.max(initialCapacity, stripes));
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.counts = new AtomicIntegerArray(stripes);
+        this.loadFactor = loadFactor;
+        this.ht = ht;
+    }
+
+    /**
+     * Checks if the table hash is empty.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of key-value pairs in the hash table. The stripes are summed without locking,
+     * so the result may miss the concurrent updates.
+     *
+     * @return the number of key-value pairs.
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            size += counts.get(i);
+        }
+        return size;
+    }
+
+    /**
+     * Clears hash table.
+     */
+    @Override
+    public void clear() {
+        lockAll();
+        try {
+            table = new AtomicReferenceArray<>(table.length());
+            for (int i = 0; i < counts.length(); i++) {
+                counts.set(i, 0);
+            }
+            lastUpdatedChain = 0;
+            rehashesCounter = 0;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public boolean contains(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in contains(K key)");
+        }
+
+        return get(key) != null;
+    }
+
+    /**
+     * Adds the new key-value pair to the hash table under the lock of the stripe of the key.
+     *
+     * @param key
+     * @param value
+     * @return added value.
+     */
+    @Override
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key or value is null in put(K key, V value)");
+        }
+
+        int hash = key.hashCode();
+        boolean resize;
+        while (true) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            int index = HashManager.hash(hash, tab.length(), ht);
+            int stripe = stripeOf(index, tab.length());
+            ReentrantLock lock = locks[stripe];
+            lock.lock();
+            try {
+                if (tab != table) {
+                    // The table was resized while waiting for the lock
+                    continue;
+                }
+                Node<K, V> head = tab.get(index);
+                for (Node<K, V> n = head; n != null; n = n.next) {
+                    if (n.hash == hash && n.key.equals(key)) {
+                        n.value = value;
+                        lastUpdatedChain = index;
+                        return value;
+                    }
+                }
+                tab.set(index, new Node<>(hash, key, value, head));
+                counts.incrementAndGet(stripe);
+                lastUpdatedChain = index;
+                // The whole table is summed only when the stripe outgrows its share of it
+                resize = counts.get(stripe) > (float) tab.length() / locks.length * loadFactor
+                        && size() > tab.length() * loadFactor;
+            } finally {
+                lock.unlock();
+            }
+            break;
+        }
+
+        if (resize) {
+            resize();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value associated with the key. No lock is taken.
+     *
+     * @param key
+     * @return the value associated with the key.
+     */
+    @Override
+    public V get(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in get(K key)");
+        }
+
+        int hash = key.hashCode();
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (Node<K, V> n = tab.get(HashManager.hash(hash, tab.length(), ht)); n != null; n = n.next) {
+            if (n.hash == hash && n.key.equals(key)) {
+                return n.value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the pair from the hash table under the lock of the stripe of the key.
+     *
+     * @param key
+     * @return value associated with key or null, if no value is associated with the key.
+     */
+    @Override
+    public V remove(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in remove(K key)");
+        }
+
+        int hash = key.hashCode();
+        while (true) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            int index = HashManager.hash(hash, tab.length(), ht);
+            int stripe = stripeOf(index, tab.length());
+            ReentrantLock lock = locks[stripe];
+            lock.lock();
+            try {
+                if (tab != table) {
+                    continue;
+                }
+                for (Node<K, V> previous = null, n = tab.get(index); n != null; previous = n, n = n.next) {
+                    if (n.hash == hash && n.key.equals(key)) {
+                        if (previous == null) {
+                            tab.set(index, n.next);
+                        } else {
+                            previous.next = n.next;
+                        }
+                        counts.decrementAndGet(stripe);
+                        lastUpdatedChain = index;
+                        return n.value;
+                    }
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || newValue == null) {
+            return false;
+        }
+
+        int hash = key.hashCode();
+        while (true) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            int index = HashManager.hash(hash, tab.length(), ht);
+            ReentrantLock lock = locks[stripeOf(index, tab.length())];
+            lock.lock();
+            try {
+                if (tab != table) {
+                    continue;
+                }
+                for (Node<K, V> n = tab.get(index); n != null; n = n.next) {
+                    if (n.hash == hash && n.key.equals(key)) {
+                        if (!n.value.equals(oldValue)) {
+                            return false;
+                        }
+                        n.value = newValue;
+                        lastUpdatedChain = index;
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i++) {
+            for (Node<K, V> n = tab.get(i); n != null; n = n.next) {
+                if (value.equals(n.value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Performs the action for each key-value pair of the hash table.
+     * The pairs are read without locking, so the concurrent updates may be missed.
+     *
+     * @param action
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i++) {
+            for (Node<K, V> n = tab.get(i); n != null; n = n.next) {
+                action.accept(n.key, n.value);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i++) {
+            for (Node<K, V> n = tab.get(i); n != null; n = n.next) {
+                result.append(n).append(System.lineSeparator());
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Doubles the table holding all the locks. The thread which comes second finds the table
+     * already resized and leaves it as it is.
+     */
+    private void resize() {
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        lockAll();
+        try {
+            if (tab != table) {
+                return;
+            }
+            AtomicReferenceArray<Node<K, V>> newTab = new AtomicReferenceArray<>(tab.length() * 2);
+            for (int i = 0; i < counts.length(); i++) {
+                counts.set(i, 0);
+            }
+            for (int i = 0; i < tab.length(); i++) {
+                for (Node<K, V> n = tab.get(i); n != null; n = n.next) {
+                    int index = HashManager.hash(n.hash, newTab.length(), ht);
+                    newTab.set(index, new Node<>(n.hash, n.key, n.value, newTab.get(index)));
+                    counts.incrementAndGet(stripeOf(index, newTab.length()));
+                }
+            }
+            table = newTab;
+            rehashesCounter++;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Returns the stripe guarding the chain: the stripes split the table into ranges of neighbouring chains.
+     */
+    private int stripeOf(int index, int tableLength) {
+        return (int) ((long) index * locks.length / tableLength);
+    }
+
+    private void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    /**
+     * Returns the maximum length of the chain.
+     *
+     * @return Maximum chain length.
+     */
+    @Override
+    public int getMaxChainSize() {
+        int max = 0;
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i++) {
+            int chainSize = 0;
+            for (Node<K, V> n = tab.get(i); n != null; n = n.next) {
+                chainSize++;
+            }
+            max = Math.max(max, chainSize);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the number of rehashes occurred in the hash table.
+     *
+     * @return number of rehashes.
+     */
+    @Override
+    public int getRehashesCounter() {
+        return rehashesCounter;
+    }
+
+    /**
+     * Returns the capacity of hash table.
+     *
+     * @return capacity of hash table.
+     */
+    @Override
+    public int getTableCapacity() {
+        return table.length();
+    }
+
+    /**
+     * Returns the index of last update element of the hash table.
+     *
+     * @return the index of last update element of the hash table.
+     */
+    @Override
+    public int getLastUpdated() {
+        return lastUpdatedChain;
+    }
+
+    /**
+     * Returns the number of occupied chains in the hash table.
+     *
+     * @return the number of occupied chains in the hash table.
+     */
+    @Override
+    public int getNumberOfOccupied() {
+        int occupied = 0;
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i++) {
+            if (tab.get(i) != null) {
+                occupied++;
+            }
+        }
+        return occupied;
+    }
+
+    protected static class Node<K, V> {
+
+        // Hash code of the key
+        protected final int hash;
+        // Key
+        protected final K key;
+        // Value, written under the lock and read without it
+        protected volatile V value;
+        // Pointer to the next node in the chain
+        protected volatile Node<K, V> next;
+
+        protected Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package utils;
+
+/**
+ * The count-min sketch of the key access frequencies. Each key counts in one 4-bit counter of each
+ * of the 4 rows, its frequency is the smallest of them, so the collisions can only overestimate it.
+ * After the sample of 10 accesses per counted key all the counters are halved, so the old
+ * frequencies age and the keys which became popular lately can win over them.
+ */
+final class CountMinSketch {
+
+    // the number of rows, each key has one counter in each of them
+    private static final int DEPTH = 4;
+    // a counter does not grow beyond it
+    private static final int MAX_COUNT = 15;
+    // the counters are halved after this number of accesses per counted key
+    private static final int SAMPLE_FACTOR = 10;
+    // keeps the lower 3 bits of each 4-bit counter after the shift
+    private static final long HALF_MASK = 0x7777777777777777L;
+
+    // 4-bit counters, 16 in a long, the rows one after another
+    private final long[] table;
+    // counters - 1 in a row, the number of counters is a power of two
+    private final int rowMask;
+    private final int sampleSize;
+    // the number of accesses since the last aging
+    private int additions = 0;
+    // the number of agings
+    private int resetsCounter = 0;
+
+    CountMinSketch(int maxEntries) {
+        int counters = Integer.highestOneBit(Math.max(maxEntries, 16) - 1) << 1;
+        this.table = new long[DEPTH * counters / 16];
+        this.rowMask = counters - 1;
+        this.sampleSize = (int) Math.min((long) SAMPLE_FACTOR * maxEntries, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Counts the access of the key, then ages the counters if the sample is complete.
+     */
+    void increment(int hash) {
+        long mixed = mix(hash);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32);
+        for (int row = 0; row < DEPTH; row++) {
+            int counter = row * (rowMask + 1) + ((h1 + row * h2) & rowMask);
+            int shift = (counter & 15) << 2;
+            if (((table[counter >>> 4] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                table[counter >>> 4] += 1L << shift;
+            }
+        }
+        if (++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Returns the estimated number of the accesses of the key, at most 15.
+     */
+    int frequency(int hash) {
+        long mixed = mix(hash);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32);
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            int counter = row * (rowMask + 1) + ((h1 + row * h2) & rowMask);
+            int count = (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & MAX_COUNT);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Halves all the counters.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & HALF_MASK;
+        }
+        additions >>>= 1;
+        resetsCounter++;
+    }
+
+    int getResetsCounter() {
+        return resetsCounter;
+    }
+
+    /**
+     * The finalizer of MurmurHash3, like in the BloomFilter: the rows take the two halves of the result.
+     */
+    private static long mix(int hash) {
+        long x = hash;
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
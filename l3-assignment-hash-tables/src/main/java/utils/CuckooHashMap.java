@@ -0,0 +1,551 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The implementation of hash table based on bucketized cuckoo hashing.
+ * The table is split into buckets of SLOTS_PER_BUCKET slots. Every key may be placed only in
+ * one of its two buckets: the primary one is chosen by the HashManager hash function, the secondary one
+ * by an independent mixing function. A lookup therefore inspects at most two buckets.
+ * When both buckets are full, a random entry of a bucket is kicked out to its other bucket,
+ * and so on, until a free slot is found or the kick limit is reached. Then the homeless entry is put
+ * to the stash of at most MAX_STASH_SIZE entries, so a lookup never inspects more than two buckets and the stash.
+ * When the stash is full, the table is rebuilt: it grows if it is loaded, otherwise the secondary hash function
+ * gets another seed. If the keys still do not fit after MAX_REBUILDS attempts, the insertion fails with
+ * IllegalStateException and the table is left as it was.
+ * The keys of equal hash codes always share both buckets, which no rebuild can change, so they take one slot:
+ * the later keys are chained to the entry of the key placed first and move together with it.
+ *
+ * @param <K> key type of hash table
+ * @param <V> value type of hash table
+ */
+public class CuckooHashMap<K, V> implements EvaluableMap<K, V> {
+
+    public static final int DEFAULT_INITIAL_CAPACITY = 8;
+    public static final HashManager.HashType DEFAULT_HASH_TYPE = HashManager.HashType.DIVISION;
+    public static final int DEFAULT_MAX_KICKS = 500;
+    // The number of slots in one bucket
+    public static final int SLOTS_PER_BUCKET = 4;
+    // The maximum number of entries in the stash
+    public static final int MAX_STASH_SIZE = 4;
+    // The table grows after a failed kick chain only if it is loaded more than this
+    private static final float GROW_LOAD_FACTOR = 0.5f;
+    // The number of attempts to rebuild the table with another size or secondary hash function
+    private static final int MAX_REBUILDS = 8;
+
+    // Hash table: bucket b occupies slots [b * SLOTS_PER_BUCKET, (b + 1) * SLOTS_PER_BUCKET)
+    protected Entry<K, V>[] table;
+    // Entries which did not fit into their buckets, at most MAX_STASH_SIZE
+    protected List<Entry<K, V>> stash = new ArrayList<>();
+    // The amount of key-value pairs
+    protected int size = 0;
+    // Hash function of the primary bucket
+    protected HashManager.HashType ht;
+    // The maximum number of kicks in one insertion
+    protected int maxKicks;
+    // Seed of the secondary hash function, changed when the keys do not fit into the sparse table
+    protected int seed = 0;
+    //--------------------------------------------------------------------------
+    //  Parameters of hash table
+    //--------------------------------------------------------------------------
+    // The amount of rehashes
+    protected int rehashesCounter = 0;
+    // The index of last updated element
+    protected int lastUpdated = 0;
+    // The total amount of kicks
+    protected int kicksCounter = 0;
+    // The length of the longest kick chain
+    protected int maxKickChain = 0;
+    // The number of entries chained to the entries of equal hash codes
+    protected int chainedCounter = 0;
+
+    private final Random random = new Random(1);
+
+    public CuckooHashMap() {
+        this(DEFAULT_HASH_TYPE);
+    }
+
+    public CuckooHashMap(HashManager.HashType ht) {
+        this(DEFAULT_INITIAL_CAPACITY, ht);
+    }
+
+    public CuckooHashMap(int initialCapacity, HashManager.HashType ht) {
+        this(initialCapacity, ht, DEFAULT_MAX_KICKS);
+    }
+
+    public CuckooHashMap(int initialCapacity, HashManager.HashType ht, int maxKicks) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+
+        if (maxKicks <= 0) {
+            throw new IllegalArgumentException("Illegal maximum number of kicks: " + maxKicks);
+        }
+
+        int buckets = (initialCapacity + SLOTS_PER_BUCKET - 1) / SLOTS_PER_BUCKET;
+        this.table = new Entry[buckets * SLOTS_PER_BUCKET];
+        this.ht = ht;
+        this.maxKicks = maxKicks;
+    }
+
+    /**
+     * Checks if the hash table is empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of key-value pairs in the hash table.
+     *
+     * @return the number of key-value pairs.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Clears hash table.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(table, null);
+        stash.clear();
+        size = 0;
+        chainedCounter = 0;
+        lastUpdated = 0;
+        rehashesCounter = 0;
+        kicksCounter = 0;
+        maxKickChain = 0;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in contains(K key)");
+        }
+
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key or value is null in put(K key, V value)");
+        }
+
+        int hash = key.hashCode();
+        Entry<K, V> head = findHead(hash);
+        Entry<K, V> entry = findInChain(head, key);
+        if (entry != null) {
+            entry.value = value;
+            return value;
+        }
+        if (head != null) {
+            entry = new Entry<>(hash, key, value);
+            entry.next = head.next;
+            head.next = entry;
+            chainedCounter++;
+            size++;
+            return value;
+        }
+
+        // The kicks move the entries, so the table is kept to be restored if the insertion fails
+        Entry<K, V>[] saved = stash.size() == MAX_STASH_SIZE ? table.clone() : null;
+        Entry<K, V> homeless = place(new Entry<>(hash, key, value));
+        if (homeless != null) {
+            if (stash.size() < MAX_STASH_SIZE) {
+                stash.add(homeless);
+            } else if (!rebuild(homeless)) {
+                table = saved;
+                throw new IllegalStateException("Too many keys share both buckets with the key " + key);
+            }
+        }
+        size++;
+        return value;
+    }
+
+    @Override
+    public V get(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in get(K key)");
+        }
+
+        Entry<K, V> entry = findEntry(key);
+        return entry == null ? null : entry.value;
+    }
+
+    @Override
+    public V remove(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in remove(K key)");
+        }
+
+        int hash = key.hashCode();
+        for (int bucket : new int[]{primaryBucket(hash), secondaryBucket(hash)}) {
+            for (int slot = bucket * SLOTS_PER_BUCKET; slot < (bucket + 1) * SLOTS_PER_BUCKET; slot++) {
+                Entry<K, V> head = table[slot];
+                if (head != null && head.hash == hash) {
+                    if (!head.key.equals(key)) {
+                        return removeChained(head, key);
+                    }
+                    // The next chained entry takes the slot
+                    table[slot] = head.next;
+                    removedHead(head);
+                    lastUpdated = slot;
+                    return head.value;
+                }
+            }
+        }
+        for (int i = 0; i < stash.size(); i++) {
+            Entry<K, V> head = stash.get(i);
+            if (head.hash == hash) {
+                if (!head.key.equals(key)) {
+                    return removeChained(head, key);
+                }
+                if (head.next == null) {
+                    stash.remove(i);
+                } else {
+                    stash.set(i, head.next);
+                }
+                removedHead(head);
+                return head.value;
+            }
+        }
+        return null;
+    }
+
+    private void removedHead(Entry<K, V> head) {
+        if (head.next != null) {
+            chainedCounter--;
+        }
+        size--;
+    }
+
+    /**
+     * Removes the key from the chain behind the head entry of the same hash code.
+     */
+    private V removeChained(Entry<K, V> head, K key) {
+        for (Entry<K, V> previous = head, entry = head.next; entry != null; previous = entry, entry = entry.next) {
+            if (entry.key.equals(key)) {
+                previous.next = entry.next;
+                chainedCounter--;
+                size--;
+                return entry.value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || newValue == null) {
+            return false;
+        }
+
+        Entry<K, V> entry = findEntry(key);
+        if (entry == null || !Objects.equals(entry.value, oldValue)) {
+            return false;
+        }
+
+        entry.value = newValue;
+        return true;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return value != null && entries().anyMatch(entry -> value.equals(entry.value));
+    }
+
+    /**
+     * Performs the action for each key-value pair of the hash table.
+     *
+     * @param action
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        entries().forEach(entry -> action.accept(entry.key, entry.value));
+    }
+
+    @Override
+    public String toString() {
+        return entries()
+                .map(Entry::toString)
+                .collect(Collectors.joining(System.lineSeparator()));
+    }
+
+    /**
+     * Returns the entries of the table and of the stash, each followed by the entries chained to it.
+     */
+    private Stream<Entry<K, V>> entries() {
+        Stream<Entry<K, V>> heads = Stream.concat(Arrays.stream(table), stash.stream()).filter(Objects::nonNull);
+        if (chainedCounter == 0) {
+            return heads;
+        }
+        return heads.flatMap(head -> Stream.iterate(head, Objects::nonNull, entry -> entry.next));
+    }
+
+    private Entry<K, V> findEntry(K key) {
+        return findInChain(findHead(key.hashCode()), key);
+    }
+
+    /**
+     * Looks for the entry of the hash code in its two buckets and, if the stash is not empty, in the stash.
+     * The other keys of the hash code are chained to this entry.
+     */
+    private Entry<K, V> findHead(int hash) {
+        int bucket = primaryBucket(hash);
+        for (int slot = bucket * SLOTS_PER_BUCKET; slot < (bucket + 1) * SLOTS_PER_BUCKET; slot++) {
+            if (table[slot] != null && table[slot].hash == hash) {
+                return table[slot];
+            }
+        }
+        bucket = secondaryBucket(hash);
+        for (int slot = bucket * SLOTS_PER_BUCKET; slot < (bucket + 1) * SLOTS_PER_BUCKET; slot++) {
+            if (table[slot] != null && table[slot].hash == hash) {
+                return table[slot];
+            }
+        }
+        for (Entry<K, V> entry : stash) {
+            if (entry.hash == hash) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private Entry<K, V> findInChain(Entry<K, V> head, K key) {
+        for (Entry<K, V> entry = head; entry != null; entry = entry.next) {
+            if (entry.key.equals(key)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Places the entry, whose key is known to be absent, into one of its buckets kicking out
+     * other entries if needed.
+     *
+     * @return the entry left without a slot after the kick limit, or null
+     */
+    private Entry<K, V> place(Entry<K, V> entry) {
+        int hash = entry.hash;
+        int bucket = primaryBucket(hash);
+        int slot = freeSlot(bucket);
+        if (slot == -1) {
+            bucket = secondaryBucket(hash);
+            slot = freeSlot(bucket);
+        }
+        if (slot != -1) {
+            table[slot] = entry;
+            lastUpdated = slot;
+            return null;
+        }
+
+        for (int kicks = 1; kicks <= maxKicks; kicks++) {
+            slot = bucket * SLOTS_PER_BUCKET + random.nextInt(SLOTS_PER_BUCKET);
+            Entry<K, V> kicked = table[slot];
+            table[slot] = entry;
+            entry = kicked;
+            kicksCounter++;
+
+            hash = entry.hash;
+            int primary = primaryBucket(hash);
+            bucket = bucket == primary ? secondaryBucket(hash) : primary;
+            slot = freeSlot(bucket);
+            if (slot != -1) {
+                table[slot] = entry;
+                lastUpdated = slot;
+                maxKickChain = Math.max(maxKickChain, kicks);
+                return null;
+            }
+        }
+        maxKickChain = Math.max(maxKickChain, maxKicks);
+        return entry;
+    }
+
+    private int freeSlot(int bucket) {
+        for (int slot = bucket * SLOTS_PER_BUCKET; slot < (bucket + 1) * SLOTS_PER_BUCKET; slot++) {
+            if (table[slot] == null) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rebuilds the table with the extra entry: the loaded table is doubled, the sparse one gets another seed
+     * of the secondary hash function, until all the entries fit with the stash within its limit.
+     *
+     * @return true if the entries fit, false if the table is left as it was
+     */
+    private boolean rebuild(Entry<K, V> extra) {
+        List<Entry<K, V>> entries = Stream.concat(Arrays.stream(table), stash.stream())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        entries.add(extra);
+
+        int capacity = table.length;
+        int newSeed = seed;
+        for (int attempt = 0; attempt < MAX_REBUILDS; attempt++) {
+            if (entries.size() > capacity * GROW_LOAD_FACTOR) {
+                capacity *= 2;
+            } else {
+                newSeed = random.nextInt();
+            }
+            CuckooHashMap<K, V> newMap = new CuckooHashMap<>(capacity, ht, maxKicks);
+            newMap.seed = newSeed;
+            if (newMap.placeAll(entries)) {
+                table = newMap.table;
+                stash = newMap.stash;
+                seed = newSeed;
+                lastUpdated = newMap.lastUpdated;
+                kicksCounter += newMap.kicksCounter;
+                maxKickChain = Math.max(maxKickChain, newMap.maxKickChain);
+                rehashesCounter++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Places the entries into the new table.
+     *
+     * @return false if an entry found neither a slot nor the room in the stash
+     */
+    private boolean placeAll(List<Entry<K, V>> entries) {
+        for (Entry<K, V> entry : entries) {
+            Entry<K, V> homeless = place(entry);
+            if (homeless != null) {
+                if (stash.size() == MAX_STASH_SIZE) {
+                    return false;
+                }
+                stash.add(homeless);
+            }
+        }
+        return true;
+    }
+
+    private int primaryBucket(int hash) {
+        return HashManager.hash(hash, table.length / SLOTS_PER_BUCKET, ht);
+    }
+
+    /**
+     * The secondary bucket is chosen by the finalization step of MurmurHash3 of the seeded hash code,
+     * which is independent of all the HashManager hash functions. It never coincides with the primary bucket.
+     */
+    private int secondaryBucket(int hash) {
+        int buckets = table.length / SLOTS_PER_BUCKET;
+        int mixed = hash ^ seed;
+        mixed ^= mixed >>> 16;
+        mixed *= 0x85ebca6b;
+        mixed ^= mixed >>> 13;
+        mixed *= 0xc2b2ae35;
+        mixed ^= mixed >>> 16;
+        int bucket = Math.floorMod(mixed, buckets);
+        return buckets > 1 && bucket == primaryBucket(hash) ? (bucket + 1) % buckets : bucket;
+    }
+
+    /**
+     * Returns the number of rehashes occurred in the hash table.
+     *
+     * @return number of rehashes.
+     */
+    @Override
+    public int getRehashesCounter() {
+        return rehashesCounter;
+    }
+
+    /**
+     * Returns the capacity of hash table.
+     *
+     * @return capacity of hash table.
+     */
+    @Override
+    public int getTableCapacity() {
+        return table.length;
+    }
+
+    /**
+     * Returns the index of last update element of the hash table.
+     *
+     * @return the index of last update element of the hash table.
+     */
+    @Override
+    public int getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * Returns the number of occupied places in the hash table.
+     *
+     * @return the number of occupied places in the hash table.
+     */
+    @Override
+    public int getNumberOfOccupied() {
+        return size - stash.size() - chainedCounter;
+    }
+
+    /**
+     * Returns the number of key-value pairs chained to the pairs of equal hash codes.
+     *
+     * @return number of chained pairs.
+     */
+    public int getChainedCounter() {
+        return chainedCounter;
+    }
+
+    /**
+     * Returns the total number of kicks made while inserting.
+     *
+     * @return number of kicks.
+     */
+    @Override
+    public int getKicksCounter() {
+        return kicksCounter;
+    }
+
+    /**
+     * Returns the length of the longest kick chain.
+     *
+     * @return maximum number of kicks in one insertion.
+     */
+    @Override
+    public int getMaxKickChain() {
+        return maxKickChain;
+    }
+
+    protected static class Entry<K, V> {
+
+        // Hash code of the key
+        protected final int hash;
+        // Key
+        protected K key;
+        // Value
+        protected V value;
+        // Next entry of the same hash code
+        protected Entry<K, V> next;
+
+        protected Entry(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
@@ -24,6 +24,25 @@ public interface EvaluableMap<K, V> extends Map<K, V> {
      */
     int getRehashesCounter();
 
+    /**
+     * Returns the number of rehashes of a hash table into a smaller table.
+     *
+     * @return Number of shrinks.
+     */
+    default int getShrinksCounter() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of chains left to migrate by the incremental rehash.
+     *
+     * @return Number of chains left to migrate, 0 if no migration is in progress,
+     * -1 if the hash table does not rehash incrementally.
+     */
+    default int getMigrationChainsLeft() {
+        return -1;
+    }
+
     /**
      * Returns the capacity of the hash table.
      *
@@ -44,4 +63,130 @@ public interface EvaluableMap<K, V> extends Map<K, V> {
      * @return the number of elements occupied by the hash table array.
      */
     int getNumberOfOccupied();
+
+    /**
+     * Returns the number of places marked as deleted in the open addressing hash table.
+     *
+     * @return Number of deleted places.
+     */
+    default int getTombstonesCounter() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of bytes used outside of the Java heap.
+     *
+     * @return Number of off-heap bytes.
+     */
+    default long getOffHeapBytes() {
+        return -1;
+    }
+
+    /**
+     * Returns the average probe distance of the open addressing hash table.
+     *
+     * @return Average probe distance.
+     */
+    default double getAverageProbeDistance() {
+        return -1;
+    }
+
+    /**
+     * Returns the maximum probe distance of the open addressing hash table.
+     *
+     * @return Maximum probe distance.
+     */
+    default int getMaxProbeDistance() {
+        return -1;
+    }
+
+    /**
+     * Returns the total number of kicks made by the cuckoo hash table while inserting.
+     *
+     * @return Number of kicks.
+     */
+    default int getKicksCounter() {
+        return -1;
+    }
+
+    /**
+     * Returns the length of the longest kick chain of the cuckoo hash table.
+     *
+     * @return Maximum number of kicks in one insertion.
+     */
+    default int getMaxKickChain() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of nodes the hash table copied since its last snapshot, which the snapshot keeps apart.
+     *
+     * @return Number of copied nodes.
+     */
+    default int getSnapshotCopiesCounter() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of lookups the Bloom filter answered without searching the hash table.
+     *
+     * @return Number of filter negatives.
+     */
+    default int getFilterNegativesCounter() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of lookups of absent keys the Bloom filter let through to the hash table.
+     *
+     * @return Number of filter false positives.
+     */
+    default int getFilterFalsePositivesCounter() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of lookups of the cache which found the key.
+     *
+     * @return Number of hits.
+     */
+    default int getHitsCounter() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of lookups of the cache which did not find the key.
+     *
+     * @return Number of misses.
+     */
+    default int getMissesCounter() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of key-value pairs the cache evicted to keep within its bound.
+     *
+     * @return Number of evictions.
+     */
+    default int getEvictionsCounter() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of key-value pairs reclaimed after their time to live.
+     *
+     * @return Number of expired pairs.
+     */
+    default int getExpiredCounter() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of key-value pairs waiting in the timer wheel for their expiry.
+     *
+     * @return Number of scheduled timers.
+     */
+    default int getWheelBacklog() {
+        return -1;
+    }
 }
@@ -0,0 +1,469 @@
+package utils;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The chained hash table, which key-value pairs expire after their time to live. An expired pair is
+ * reclaimed by the lookup which finds it, and the rest are reclaimed by the hierarchical timer wheel,
+ * which is advanced by the time passed before each operation. The wheel visits only the buckets of
+ * the passed ticks, and each pair moves down its levels a few times at most, so no operation scans the table.
+ * The pair is due when its time passed, but it may be reclaimed by the wheel up to one tick (about 1 second)
+ * later: size, forEach and the iteration may still see it until then.
+ * The expiry is set by put, and the changes by compute, merge and replace start the default time to live again,
+ * while the reads do not extend it.
+ *
+ * @param <K> key type of the map
+ * @param <V> value type of the map
+ */
+public class ExpiringHashMap<K, V> extends HashMap<K, V> {
+
+    /**
+     * The source of the time in nanoseconds, replaced by the tests and the benchmarks to move the time on their own.
+     */
+    @FunctionalInterface
+    public interface Ticker {
+
+        /**
+         * Returns the current time, only the differences of the returned values are used.
+         *
+         * @return time in nanoseconds.
+         */
+        long read();
+
+        static Ticker system() {
+            return System::nanoTime;
+        }
+    }
+
+    // the number of buckets in each level of the wheel, the last one holds the far expiries
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    // the time of one bucket of each level: 1.07 s, 1.14 min, 1.22 h, 1.63 days, 6.5 days, 6.5 days
+    private static final long[] SPANS = {1L << 30, 1L << 36, 1L << 42, 1L << 47, 1L << 49, 1L << 49};
+    // log2 of the spans
+    private static final int[] SHIFTS = {30, 36, 42, 47, 49, 49};
+    // no write is in progress, the access is a read
+    private static final long READ = -1;
+
+    private final long defaultTtl;
+    private final Ticker ticker;
+    // the sentinels of the circular lists of the buckets
+    private final ExpiringNode<K, V>[][] wheel;
+    // the time the wheel was advanced to
+    private long wheelTime;
+    // the time read at the beginning of the current operation
+    private long now;
+    // the time to live set by the write in progress
+    private long writeTtl = READ;
+    // the node found by the last read or write of the existing key
+    private ExpiringNode<K, V> accessedNode;
+    // the node taken out by the last removal
+    private ExpiringNode<K, V> removedNode;
+    // the number of pairs scheduled in the wheel
+    private int timersCounter = 0;
+    // the number of reclaimed expired pairs
+    private int expiredCounter = 0;
+
+    public ExpiringHashMap(long defaultTtl, TimeUnit unit) {
+        this(defaultTtl, unit, DEFAULT_HASH_TYPE);
+    }
+
+    public ExpiringHashMap(long defaultTtl, TimeUnit unit, HashManager.HashType ht) {
+        this(defaultTtl, unit, DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, ht, Ticker.system());
+    }
+
+    @SuppressWarnings("unchecked")
+    public ExpiringHashMap(long defaultTtl, TimeUnit unit, int initialCapacity, float loadFactor,
+                           HashManager.HashType ht, Ticker ticker) {
+        super(initialCapacity, loadFactor, ht);
+        if (defaultTtl <= 0) {
+            throw new IllegalArgumentException("Illegal time to live: " + defaultTtl);
+        }
+        if (ticker == null) {
+            throw new IllegalArgumentException("Ticker is null");
+        }
+
+        this.defaultTtl = unit.toNanos(defaultTtl);
+        this.ticker = ticker;
+        this.wheel = new ExpiringNode[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = new ExpiringNode[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                wheel[i][j] = newSentinel();
+            }
+        }
+        this.wheelTime = ticker.read();
+    }
+
+    /**
+     * Returns the default time to live of the key-value pairs.
+     *
+     * @param unit unit of the returned time.
+     * @return default time to live.
+     */
+    public long getDefaultTtl(TimeUnit unit) {
+        return unit.convert(defaultTtl, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Adds the new key-value pair, which expires after the default time to live.
+     *
+     * @param key
+     * @param value
+     * @return added value.
+     */
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, defaultTtl, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Adds the new key-value pair, which expires after the time to live. The existing key gets the value
+     * and the new time to live.
+     *
+     * @param key
+     * @param value
+     * @param ttl time to live of the pair.
+     * @param unit unit of the time to live.
+     * @return added value.
+     */
+    public V put(K key, V value, long ttl, TimeUnit unit) {
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("Illegal time to live: " + ttl);
+        }
+
+        advance();
+        writeTtl = unit.toNanos(ttl);
+        try {
+            return super.put(key, value);
+        } finally {
+            writeTtl = READ;
+        }
+    }
+
+    /**
+     * Returns the value associated with the key, the expired pair is reclaimed and null is returned.
+     *
+     * @param key
+     * @return the value associated with the key.
+     */
+    @Override
+    public V get(K key) {
+        advance();
+        accessedNode = null;
+        V value = super.get(key);
+        if (value != null && isExpired(accessedNode)) {
+            expire(accessedNode);
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * Removes the pair from the hash table.
+     *
+     * @param key
+     * @return value associated with key or null, if no value is associated with the key or the pair expired.
+     */
+    @Override
+    public V remove(K key) {
+        advance();
+        removedNode = null;
+        V value = super.remove(key);
+        if (value != null && isExpired(removedNode)) {
+            expiredCounter++;
+            return null;
+        }
+        return value;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        advance();
+        expireIfStale(key);
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        advance();
+        expireIfStale(key);
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        advance();
+        expireIfStale(key);
+        writeTtl = defaultTtl;
+        try {
+            return super.computeIfPresent(key, remappingFunction);
+        } finally {
+            writeTtl = READ;
+        }
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        advance();
+        expireIfStale(key);
+        writeTtl = defaultTtl;
+        try {
+            return super.compute(key, remappingFunction);
+        } finally {
+            writeTtl = READ;
+        }
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        advance();
+        expireIfStale(key);
+        writeTtl = defaultTtl;
+        try {
+            return super.merge(key, value, remappingFunction);
+        } finally {
+            writeTtl = READ;
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        advance();
+        if (key != null) {
+            expireIfStale(key);
+        }
+        writeTtl = defaultTtl;
+        try {
+            return super.replace(key, oldValue, newValue);
+        } finally {
+            writeTtl = READ;
+        }
+    }
+
+    /**
+     * Performs the action for each key-value pair, after the wheel reclaimed the pairs due by now.
+     *
+     * @param action action.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        advance();
+        super.forEach(action);
+    }
+
+    /**
+     * Advances the timer wheel to the current time, so the pairs due by now are reclaimed.
+     */
+    public void cleanUp() {
+        advance();
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        for (ExpiringNode<K, V>[] buckets : wheel) {
+            for (ExpiringNode<K, V> sentinel : buckets) {
+                sentinel.nextInWheel = sentinel;
+                sentinel.previousInWheel = sentinel;
+            }
+        }
+        timersCounter = 0;
+        expiredCounter = 0;
+    }
+
+    /**
+     * The snapshot shares the nodes with the map, which are moved within the timer wheel, so it is not supported.
+     */
+    @Override
+    public Snapshot<K, V> snapshot() {
+        throw new UnsupportedOperationException("ExpiringHashMap does not support snapshots");
+    }
+
+    /**
+     * The workers would schedule the timers in parallel, so the pairs are added one by one.
+     */
+    @Override
+    public void putAllParallel(List<? extends K> keys, List<? extends V> values, ForkJoinPool pool) {
+        putAll(keys, values);
+    }
+
+    @Override
+    protected Node<K, V> newNode(int hash, K key, V value, Node<K, V> next) {
+        return new ExpiringNode<>(hash, key, value, next);
+    }
+
+    @Override
+    protected boolean usesTreeBins() {
+        return false;
+    }
+
+    @Override
+    protected void afterNodeAccess(Node<K, V> node) {
+        accessedNode = (ExpiringNode<K, V>) node;
+        if (writeTtl != READ) {
+            unschedule(accessedNode);
+            accessedNode.expiresAt = now + writeTtl;
+            schedule(accessedNode);
+        }
+    }
+
+    @Override
+    protected void afterNodeInsertion(Node<K, V> node) {
+        ExpiringNode<K, V> expiringNode = (ExpiringNode<K, V>) node;
+        expiringNode.expiresAt = now + (writeTtl != READ ? writeTtl : defaultTtl);
+        schedule(expiringNode);
+    }
+
+    @Override
+    protected void afterNodeRemoval(Node<K, V> node) {
+        removedNode = (ExpiringNode<K, V>) node;
+        unschedule(removedNode);
+    }
+
+    private boolean isExpired(ExpiringNode<K, V> node) {
+        return node.expiresAt - now <= 0;
+    }
+
+    /**
+     * Reclaims the pair of the key if it expired, so the operation which follows sees the key as absent.
+     */
+    private void expireIfStale(K key) {
+        accessedNode = null;
+        if (key != null && super.get(key) != null && isExpired(accessedNode)) {
+            expire(accessedNode);
+        }
+    }
+
+    private void expire(ExpiringNode<K, V> node) {
+        super.remove(node.key);
+        expiredCounter++;
+    }
+
+    //--------------------------------------------------------------------------
+    //  Timer wheel
+    //--------------------------------------------------------------------------
+
+    /**
+     * Reads the time and moves the wheel to it. Each level visits the buckets of the ticks passed since
+     * the previous move, at most all of its buckets, and stops at the first level which tick did not pass.
+     * The due pairs of the visited buckets are reclaimed, the rest are scheduled again into the lower levels.
+     */
+    private void advance() {
+        now = ticker.read();
+        long previousTime = wheelTime;
+        wheelTime = now;
+        for (int i = 0; i < SHIFTS.length - 1; i++) {
+            long previousTicks = previousTime >>> SHIFTS[i];
+            long delta = (now >>> SHIFTS[i]) - previousTicks;
+            if (delta <= 0) {
+                break;
+            }
+            expireBuckets(i, previousTicks, delta);
+        }
+    }
+
+    private void expireBuckets(int level, long previousTicks, long delta) {
+        ExpiringNode<K, V>[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+        for (int i = start; i < start + steps; i++) {
+            ExpiringNode<K, V> sentinel = buckets[i & mask];
+            ExpiringNode<K, V> node = sentinel.nextInWheel;
+            sentinel.nextInWheel = sentinel;
+            sentinel.previousInWheel = sentinel;
+            while (node != sentinel) {
+                ExpiringNode<K, V> next = node.nextInWheel;
+                node.nextInWheel = null;
+                node.previousInWheel = null;
+                timersCounter--;
+                if (isExpired(node)) {
+                    expire(node);
+                } else {
+                    schedule(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    /**
+     * Links the node last into the bucket of its expiry: the first level which bucket span
+     * is longer than the time left, so a pair waits in a coarse bucket and moves down as its time nears.
+     */
+    private void schedule(ExpiringNode<K, V> node) {
+        ExpiringNode<K, V> sentinel = findBucket(node.expiresAt);
+        node.previousInWheel = sentinel.previousInWheel;
+        node.nextInWheel = sentinel;
+        sentinel.previousInWheel.nextInWheel = node;
+        sentinel.previousInWheel = node;
+        timersCounter++;
+    }
+
+    private ExpiringNode<K, V> findBucket(long time) {
+        long duration = time - wheelTime;
+        int last = wheel.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (duration < SPANS[i + 1]) {
+                int index = (int) ((time >>> SHIFTS[i]) & (wheel[i].length - 1));
+                return wheel[i][index];
+            }
+        }
+        return wheel[last][0];
+    }
+
+    private void unschedule(ExpiringNode<K, V> node) {
+        if (node.nextInWheel != null) {
+            node.previousInWheel.nextInWheel = node.nextInWheel;
+            node.nextInWheel.previousInWheel = node.previousInWheel;
+            node.nextInWheel = null;
+            node.previousInWheel = null;
+            timersCounter--;
+        }
+    }
+
+    private ExpiringNode<K, V> newSentinel() {
+        ExpiringNode<K, V> sentinel = new ExpiringNode<>(0, null, null, null);
+        sentinel.nextInWheel = sentinel;
+        sentinel.previousInWheel = sentinel;
+        return sentinel;
+    }
+
+    /**
+     * Returns the number of expired key-value pairs reclaimed by the lookups and by the timer wheel.
+     *
+     * @return Number of expired pairs.
+     */
+    @Override
+    public int getExpiredCounter() {
+        return expiredCounter;
+    }
+
+    /**
+     * Returns the number of key-value pairs waiting in the timer wheel, including the due ones
+     * which are not reclaimed yet.
+     *
+     * @return Number of scheduled timers.
+     */
+    @Override
+    public int getWheelBacklog() {
+        return timersCounter;
+    }
+
+    protected static class ExpiringNode<K, V> extends Node<K, V> {
+
+        // The time the pair expires at, in the nanoseconds of the ticker
+        protected long expiresAt;
+        // Neighbours in the bucket of the timer wheel, null if the node is not scheduled
+        protected ExpiringNode<K, V> previousInWheel, nextInWheel;
+
+        protected ExpiringNode(int hash, K key, V value, Node<K, V> next) {
+            super(hash, key, value, next);
+        }
+    }
+}
@@ -1,11 +1,25 @@
 package utils;
 
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The implementation of hash table based on chaining.
  * If the key is an object, e.g. class Car object,
  * do not forget to override methods equals(Object o) and hashCode().
+ * The snapshot shares the table with the map: the map copies the table and each chain
+ * before their first change after the snapshot, so the snapshot never changes.
  *
  * @param <K> key type of hash table
  * @param <V> value type of hash table
@@ -14,9 +28,28 @@ import java.util.Arrays;
  */
 public class HashMap<K, V> implements EvaluableMap<K, V> {
 
+    public enum RehashMode {
+
+        // The whole table is rebuilt by the put which exceeds the load factor
+        STOP_THE_WORLD,
+        // The old and the new tables coexist, each operation migrates a few chains
+        INCREMENTAL
+    }
+
     public static final int DEFAULT_INITIAL_CAPACITY = 8;
     public static final float DEFAULT_LOAD_FACTOR = 0.75f;
     public static final HashManager.HashType DEFAULT_HASH_TYPE = HashManager.HashType.DIVISION;
+    // A chain longer than this is converted into a balanced tree
+    public static final int TREEIFY_THRESHOLD = 8;
+    // A tree which shrinks to this size is converted back into a chain
+    public static final int UNTREEIFY_THRESHOLD = 6;
+    // Smaller tables are rehashed instead of converting their long chains into trees
+    public static final int MIN_TREEIFY_CAPACITY = 64;
+    public static final RehashMode DEFAULT_REHASH_MODE = RehashMode.STOP_THE_WORLD;
+    // The number of old table chains migrated by one operation in the incremental rehash mode
+    public static final int MIGRATION_STEP = 8;
+    // The table never shrinks after removals by default
+    public static final float DEFAULT_LOW_WATER_FACTOR = 0.0f;
 
     // hash table
     protected Node<K, V>[] table;
@@ -26,6 +59,14 @@ public class HashMap<K, V> implements EvaluableMap<K, V> {
     protected float loadFactor;
     // hash function
     protected HashManager.HashType ht;
+    // rehash mode
+    protected RehashMode rehashMode;
+    // the table being migrated in the incremental rehash mode, null if no migration is in progress
+    protected Node<K, V>[] oldTable;
+    // the index of the next old table chain to be migrated
+    protected int migrationIndex = 0;
+    // the table shrinks when the removals leave fewer key-value pairs than this part of it, 0 if it never shrinks
+    protected float lowWaterFactor = DEFAULT_LOW_WATER_FACTOR;
     //--------------------------------------------------------------------------
     //  Parameters of a hash table
     //--------------------------------------------------------------------------
@@ -33,12 +74,39 @@ public class HashMap<K, V> implements EvaluableMap<K, V> {
     protected int maxChainSize = 0;
     // the amount of rehashes
     protected int rehashesCounter = 0;
+    // the amount of rehashes into a smaller table
+    protected int shrinksCounter = 0;
     // Chain index of the last placed key-value pair in the hash table
     protected int lastUpdatedChain = 0;
     // The amount of chains
     protected int chainsCounter = 0;
+    // Sequence number of the next tree node, orders the tree nodes which keys can not be compared
+    private long treeNodesCounter = 0;
+    // The number of nodes passed by the last locate call
+    private int lastChainSize = 0;
+    // The number of changes and snapshots, the compute and merge operations detect the changes made by their function
+    private int modCount = 0;
+    // The filter of the keys in front of the lookups, null until it is enabled
+    private BloomFilter bloomFilter;
+    // The number of lookups the filter answered without searching the table
+    private int filterNegativesCounter = 0;
+    // The number of lookups of the absent keys the filter let through
+    private int filterFalsePositivesCounter = 0;
+    //--------------------------------------------------------------------------
+    //  Copy on write after a snapshot
+    //--------------------------------------------------------------------------
+    // the version of the map, increased by each snapshot
+    protected int version = 0;
+    // the version the table was copied in, an older table is shared with a snapshot
+    protected int tableVersion = 0;
+    // the versions the chains were copied in, older chains are shared with a snapshot
+    protected int[] chainVersions;
+    // the chain versions of the table being migrated in the incremental rehash mode
+    protected int[] oldChainVersions;
+    // the amount of nodes copied since the last snapshot
+    protected int snapshotCopiesCounter = 0;
 
-    // 4 overloaded constructors are created in the class
+    // 5 overloaded constructors are created in the class
     public HashMap() {
         this(DEFAULT_HASH_TYPE);
     }
@@ -56,6 +124,10 @@ public class HashMap<K, V> implements EvaluableMap<K, V> {
     }
 
     public HashMap(int initialCapacity, float loadFactor, HashManager.HashType ht) {
+        this(initialCapacity, loadFactor, ht, DEFAULT_REHASH_MODE);
+    }
+
+    public HashMap(int initialCapacity, float loadFactor, HashManager.HashType ht, RehashMode rehashMode) {
         if (initialCapacity <= 0) {
             throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
         }
@@ -67,6 +139,7 @@ public class HashMap<K, V> implements EvaluableMap<K, V> {
         this.table = new Node[initialCapacity];
         this.loadFactor = loadFactor;
         this.ht = ht;
+        this.rehashMode = rehashMode;
     }
 
     /**
@@ -92,12 +165,26 @@ public class HashMap<K, V> implements EvaluableMap<K, V> {
      */
     @Override
     public void clear() {
-        Arrays.fill(table, null);
+        if (tableVersion != version) {
+            table = new Node[table.length];
+            chainVersions = new int[table.length];
+            tableVersion = version;
+        } else {
+            Arrays.fill(table, null);
+        }
+        oldTable = null;
+        oldChainVersions = null;
+        migrationIndex = 0;
         size = 0;
+        modCount++;
         lastUpdatedChain = 0;
         maxChainSize = 0;
         rehashesCounter = 0;
+        shrinksCounter = 0;
         chainsCounter = 0;
+        if (bloomFilter != null) {
+            bloomFilter.clear();
+        }
     }
 
     /**
@@ -117,6 +204,7 @@ public class HashMap<K, V> implements EvaluableMap<K, V> {
 
     /**
      * Adds the new key-value pair to the hash table.
+     * A chain which grows longer than TREEIFY_THRESHOLD is converted into a balanced tree.
      *
      * @param key
      * @param value
@@ -127,27 +215,60 @@ public class HashMap<K, V> implements EvaluableMap<K, V> {
         if (key == null || value == null) {
             throw new IllegalArgumentException("Key or value is null in put(K key, V value)");
         }
-        int index = HashManager.hash(key.hashCode(), table.length, ht);
+        int hash = key.hashCode();
+        if (oldTable != null) {
+            migrateChainOf(hash);
+            migrateStep();
+        }
+        int index = HashManager.hash(hash, table.length, ht);
+        ownChain(index);
         if (table[index] == null) {
             chainsCounter++;
         }
 
-        Node<K, V> node = getInChain(key, table[index]);
-        if (node == null) {
-            table[index] = new Node<>(key, value, table[index]);
-            size++;
+        if (table[index] instanceof TreeNode) {
+            return putInTree(index, hash, key, value);
+        }
 
-            if (size > table.length * loadFactor) {
-                rehash();
-            } else {
+        int chainSize = 0;
+        for (Node<K, V> n = table[index]; n != null; n = n.next) {
+            if (n.hash == hash && n.key.equals(key)) {
+                n.value = value;
                 lastUpdatedChain = index;
+                afterNodeAccess(n);
+                return value;
             }
+            chainSize++;
+        }
+        addNode(index, hash, key, value, chainSize);
+        return value;
+    }
+
+    /**
+     * Adds the new node in front of the chain of the given size, then grows the table or treeifies the chain if needed.
+     */
+    private void addNode(int index, int hash, K key, V value, int chainSize) {
+        maxChainSize = Math.max(maxChainSize, chainSize + 1);
+
+        Node<K, V> node = newNode(hash, key, value, table[index]);
+        table[index] = node;
+        size++;
+        modCount++;
+        addToFilter(hash);
+
+        if (size > table.length * loadFactor) {
+            resize();
         } else {
-            node.value = value;
             lastUpdatedChain = index;
+            if (chainSize + 1 > TREEIFY_THRESHOLD) {
+                if (table.length < MIN_TREEIFY_CAPACITY) {
+                    resize();
+                } else {
+                    treeifyChain(index);
+                }
+            }
         }
-
-        return value;
+        afterNodeInsertion(node);
     }
 
     /**
@@ -162,9 +283,28 @@ public class HashMap<K, V> implements EvaluableMap<K, V> {
             throw new IllegalArgumentException("Key is null in get(K key)");
         }
 
-        int index = HashManager.hash(key.hashCode(), table.length, ht);
-        Node<K, V> node = getInChain(key, table[index]);
-        return node == null ? null : node.value;
+        int hash = key.hashCode();
+        if (bloomFilter != null && !bloomFilter.mightContain(hash)) {
+            filterNegativesCounter++;
+            return null;
+        }
+        Node<K, V> node;
+        if (oldTable != null) {
+            // The chain, which is not migrated yet, still holds all its keys
+            Node<K, V> oldChain = oldTable[HashManager.hash(hash, oldTable.length, ht)];
+            node = oldChain != null ? findInChain(oldChain, hash, key) : getNode(hash, key);
+            migrateStep();
+        } else {
+            node = getNode(hash, key);
+        }
+        if (node == null) {
+            if (bloomFilter != null) {
+                filterFalsePositivesCounter++;
+            }
+            return null;
+        }
+        afterNodeAccess(node);
+        return node.value;
     }
 
     /**
@@ -177,182 +317,1579 @@ public class HashMap<K, V> implements EvaluableMap<K, V> {
     public V remove(K key) {
         if (key == null) {
             return null;
-        } else {
-            int index = HashManager.hash(key.hashCode(), this.table.length, this.ht);
-            Node startNode;
-            if (this.table[index].key == key) {
-                startNode = this.table[index];
-                this.table[index] = this.table[index].next;
-                --this.size;
-                return startNode.value;
-            } else {
-                startNode = this.table[index];
+        }
+        int hash = key.hashCode();
+        if (oldTable != null) {
+            migrateChainOf(hash);
+            migrateStep();
+        }
 
-                for(Node<K, V> prevNode = startNode; startNode != null; startNode = startNode.next) {
-                    if (startNode.key == key) {
-                        prevNode.next = startNode.next;
-                        --this.size;
-                        break;
-                    }
+        int index = HashManager.hash(hash, table.length, ht);
+        ownChain(index);
+        if (table[index] instanceof TreeNode) {
+            TreeNode<K, V> node = findInTree((TreeNode<K, V>) table[index], hash, key);
+            if (node == null) {
+                return null;
+            }
+            removeFromTree(index, node);
+            removed(index, node);
+            return node.value;
+        }
 
-                    prevNode = startNode;
+        for (Node<K, V> previous = null, n = table[index]; n != null; previous = n, n = n.next) {
+            if (n.hash == hash && n.key.equals(key)) {
+                if (previous == null) {
+                    table[index] = n.next;
+                } else {
+                    previous.next = n.next;
                 }
-
-                return startNode.value;
+                removed(index, n);
+                return n.value;
             }
         }
+        return null;
+    }
+
+    private void removed(int index, Node<K, V> node) {
+        afterNodeRemoval(node);
+        size--;
+        modCount++;
+        lastUpdatedChain = index;
+        if (table[index] == null) {
+            chainsCounter--;
+        }
+        if (size < table.length * lowWaterFactor) {
+            shrink(shrunkCapacity(loadFactor / 2));
+        }
     }
 
     /**
-     * Reshuffling
+     * Sets the low water factor: the removal which leaves fewer key-value pairs than this part of the table
+     * shrinks the table, until the pairs fill it up to a half of the load factor. The gap between the low water
+     * factor and the load factor keeps the table from growing and shrinking back and forth.
+     *
+     * @param lowWaterFactor low water factor, 0 if the table never shrinks.
      */
-    private void rehash() {
-        HashMap<K, V> newMap = new HashMap<>(table.length * 2, loadFactor, ht);
-        for (int i = 0; i < table.length; i++) {
-            while (table[i] != null) {
-                newMap.put(table[i].key, table[i].value);
-                table[i] = table[i].next;
-            }
+    public void setLowWaterFactor(float lowWaterFactor) {
+        if (lowWaterFactor < 0.0 || lowWaterFactor >= loadFactor / 4) {
+            throw new IllegalArgumentException("Illegal low water factor: " + lowWaterFactor);
         }
-        table = newMap.table;
-        maxChainSize = newMap.maxChainSize;
-        chainsCounter = newMap.chainsCounter;
-        lastUpdatedChain = newMap.lastUpdatedChain;
-        rehashesCounter++;
+
+        this.lowWaterFactor = lowWaterFactor;
     }
 
     /**
-     * Searching on a single chain
-     *
-     * @param key
-     * @param node
-     * @return key-value pair
+     * Shrinks the table to the smallest one which holds the key-value pairs within the load factor.
+     */
+    public void trimToSize() {
+        shrink(shrunkCapacity(loadFactor));
+    }
+
+    /**
+     * Returns the capacity of the table halved while the key-value pairs fill it within the given load.
+     * The capacity does not go below the default initial one, nor becomes odd, so the doubled
+     * capacities of the table keep being powers of two.
      */
-    private Node<K, V> getInChain(K key, Node<K, V> node) {
+    private int shrunkCapacity(float load) {
+        int capacity = table.length;
+        while (capacity % 2 == 0 && capacity / 2 >= DEFAULT_INITIAL_CAPACITY && size <= capacity / 2 * load) {
+            capacity /= 2;
+        }
+        return capacity;
+    }
+
+    private void shrink(int capacity) {
+        if (capacity < table.length) {
+            finishMigration();
+            rehash(capacity);
+            shrinksCounter++;
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key or value is null in putIfAbsent(K key, V value)");
+        }
+        int hash = key.hashCode();
+        Node<K, V> node = locate(hash, key);
+        if (node != null) {
+            afterNodeAccess(node);
+            return node.value;
+        }
+        addLocated(hash, key, value, lastChainSize);
+        return null;
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
         if (key == null) {
-            throw new IllegalArgumentException("Key is null in getInChain(K key, Node node)");
+            throw new IllegalArgumentException("Key is null in computeIfAbsent(K key, Function mappingFunction)");
         }
-        int chainSize = 0;
-        for (Node<K, V> n = node; n != null; n = n.next) {
-            chainSize++;
-            if ((n.key).equals(key)) {
+        int hash = key.hashCode();
+        Node<K, V> node = locate(hash, key);
+        if (node != null) {
+            afterNodeAccess(node);
+            return node.value;
+        }
+        int chainSize = lastChainSize;
+        int expectedModCount = modCount;
+        V value = mappingFunction.apply(key);
+        checkForComodification(expectedModCount);
+        if (value != null) {
+            addLocated(hash, key, value, chainSize);
+        }
+        return value;
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in computeIfPresent(K key, BiFunction remappingFunction)");
+        }
+        int hash = key.hashCode();
+        Node<K, V> node = locate(hash, key);
+        if (node == null) {
+            return null;
+        }
+        int expectedModCount = modCount;
+        V value = remappingFunction.apply(key, node.value);
+        checkForComodification(expectedModCount);
+        setLocated(hash, node, value);
+        return value;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in compute(K key, BiFunction remappingFunction)");
+        }
+        int hash = key.hashCode();
+        Node<K, V> node = locate(hash, key);
+        int chainSize = lastChainSize;
+        int expectedModCount = modCount;
+        V value = remappingFunction.apply(key, node == null ? null : node.value);
+        checkForComodification(expectedModCount);
+        if (node != null) {
+            setLocated(hash, node, value);
+        } else if (value != null) {
+            addLocated(hash, key, value, chainSize);
+        }
+        return value;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key or value is null in merge(K key, V value, BiFunction remappingFunction)");
+        }
+        int hash = key.hashCode();
+        Node<K, V> node = locate(hash, key);
+        if (node == null) {
+            addLocated(hash, key, value, lastChainSize);
+            return value;
+        }
+        int expectedModCount = modCount;
+        V newValue = remappingFunction.apply(node.value, value);
+        checkForComodification(expectedModCount);
+        setLocated(hash, node, newValue);
+        return newValue;
+    }
+
+    /**
+     * Prepares the chain of the key for the change and finds the node of the key in it. The compute and merge
+     * operations locate the key once, then add the absent key or set the value of the located node.
+     * They keep the size of the chain before calling their function, since the lookups of the function
+     * search again. The function which adds or removes keys, or takes a snapshot, makes them throw
+     * ConcurrentModificationException.
+     */
+    private Node<K, V> locate(int hash, K key) {
+        if (oldTable != null) {
+            migrateChainOf(hash);
+            migrateStep();
+        }
+        int index = HashManager.hash(hash, table.length, ht);
+        ownChain(index);
+
+        lastChainSize = 0;
+        if (table[index] instanceof TreeNode) {
+            return findInTree((TreeNode<K, V>) table[index], hash, key);
+        }
+        for (Node<K, V> n = table[index]; n != null; n = n.next) {
+            if (n.hash == hash && n.key.equals(key)) {
                 return n;
             }
+            lastChainSize++;
         }
-        maxChainSize = Math.max(maxChainSize, chainSize + 1);
         return null;
     }
 
-    @Override
-    public String toString() {
-        StringBuilder result = new StringBuilder();
-        for (Node<K, V> node : table) {
-            if (node != null) {
+    private void addLocated(int hash, K key, V value, int chainSize) {
+        int index = HashManager.hash(hash, table.length, ht);
+        if (table[index] == null) {
+            chainsCounter++;
+        }
+        if (table[index] instanceof TreeNode) {
+            addTreeNode(index, hash, key, value);
+        } else {
+            addNode(index, hash, key, value, chainSize);
+        }
+    }
+
+    private void checkForComodification(int expectedModCount) {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Sets the value of the located node, the null value removes the node.
+     */
+    private void setLocated(int hash, Node<K, V> node, V value) {
+        int index = HashManager.hash(hash, table.length, ht);
+        if (value != null) {
+            node.value = value;
+            lastUpdatedChain = index;
+            afterNodeAccess(node);
+            return;
+        }
+
+        if (node instanceof TreeNode) {
+            removeFromTree(index, (TreeNode<K, V>) node);
+        } else if (table[index] == node) {
+            table[index] = node.next;
+        } else {
+            Node<K, V> previous = table[index];
+            while (previous.next != node) {
+                previous = previous.next;
+            }
+            previous.next = node.next;
+        }
+        removed(index, node);
+    }
+
+    /**
+     * Puts the Bloom filter in front of the lookups: get and contains of the keys the filter rejects
+     * return without searching the table. The filter is rebuilt larger when more keys than expected were
+     * added, which also drops the bits of the removed keys.
+     *
+     * @param expectedSize expected number of keys.
+     * @param falsePositiveRate the part of the lookups of absent keys which still search the table.
+     */
+    public void enableBloomFilter(int expectedSize, double falsePositiveRate) {
+        bloomFilter = new BloomFilter(Math.max(expectedSize, size), falsePositiveRate);
+        filterNegativesCounter = 0;
+        filterFalsePositivesCounter = 0;
+        addAllToFilter();
+    }
+
+    private void addToFilter(int hash) {
+        if (bloomFilter == null) {
+            return;
+        }
+        bloomFilter.add(hash);
+        if (bloomFilter.isSaturated()) {
+            bloomFilter = new BloomFilter(Math.max(bloomFilter.getExpectedSize(), 2 * size), bloomFilter.getFalsePositiveRate());
+            addAllToFilter();
+        }
+    }
+
+    private void addAllToFilter() {
+        for (Node<K, V>[] nodes : oldTable == null ? new Node[][]{table} : new Node[][]{oldTable, table}) {
+            for (Node<K, V> node : nodes) {
                 for (Node<K, V> n = node; n != null; n = n.next) {
-                    result.append(n).append(System.lineSeparator());
+                    bloomFilter.add(n.hash);
                 }
             }
         }
-        return result.toString();
     }
 
-    public boolean replace(K key, V oldValue, V newValue) {
-        if (key == null) {
-            return false;
-        } else {
-            int index = HashManager.hash(key.hashCode(), this.table.length, this.ht);
-            if (this.table[index].key == key) {
-                this.table[index].value = newValue;
-                return true;
-            } else {
-                for(Node<K, V> startNode = this.table[index]; startNode != null; startNode = startNode.next) {
-                    if (startNode.value == oldValue) {
-                        startNode.value = newValue;
-                        return true;
-                    }
-                }
+    /**
+     * Grows the table: rebuilds it at once or starts the incremental migration to a twice larger table.
+     */
+    private void resize() {
+        if (rehashMode == RehashMode.STOP_THE_WORLD) {
+            rehash();
+            return;
+        }
 
-                return false;
+        finishMigration();
+        if (version != 0) {
+            // The migration empties the chains of the old table, so it has to be a copy
+            ownTable();
+            oldChainVersions = chainVersions;
+        }
+        oldTable = table;
+        table = new Node[oldTable.length * 2];
+        ownNewTable();
+        migrationIndex = 0;
+        rehashesCounter++;
+    }
+
+    /**
+     * Migrates the next MIGRATION_STEP chains of the old table, ends the migration after the last one.
+     */
+    private void migrateStep() {
+        int end = Math.min(migrationIndex + MIGRATION_STEP, oldTable.length);
+        for (; migrationIndex < end; migrationIndex++) {
+            if (oldTable[migrationIndex] != null) {
+                migrateChain(migrationIndex);
             }
         }
+        if (migrationIndex == oldTable.length) {
+            oldTable = null;
+            oldChainVersions = null;
+        }
     }
 
-    public boolean containsValue(Object value) {
-        int index = HashManager.hash(value.hashCode(), this.table.length, this.ht);
-        return this.table[index] != null;
+    private void finishMigration() {
+        while (oldTable != null) {
+            migrateStep();
+        }
     }
 
     /**
-     * Returns the maximum length of the chain.
-     *
-     * @return Maximum chain length.
+     * Migrates the old table chain of the hash ahead of its turn, so the operation
+     * on the key has to deal with the new table only.
      */
-    @Override
-    public int getMaxChainSize() {
-        return maxChainSize;
+    private void migrateChainOf(int hash) {
+        int index = HashManager.hash(hash, oldTable.length, ht);
+        if (oldTable[index] != null) {
+            migrateChain(index);
+        }
     }
 
     /**
-     * Returns the number of rehashes occurred in the hash table.
-     *
-     * @return Number of reshuffles.
+     * Moves the old table chain into the new table. The chain shared with a snapshot is copied.
      */
-    @Override
-    public int getRehashesCounter() {
-        return rehashesCounter;
+    private void migrateChain(int oldIndex) {
+        Node<K, V> chain = oldTable[oldIndex];
+        oldTable[oldIndex] = null;
+        chainsCounter--;
+        relinkChain(chain, oldChainVersions != null && oldChainVersions[oldIndex] != version);
     }
 
     /**
-     * Returns the capacity of the hash table.
-     *
-     * @return Hash table capacity.
+     * Relinks the nodes of the chain into the table. The nodes of a tree bin are replaced by the plain ones,
+     * the other nodes are reused unless they have to be copied.
      */
-    @Override
-    public int getTableCapacity() {
-        return table.length;
+    private void relinkChain(Node<K, V> n, boolean copy) {
+        while (n != null) {
+            Node<K, V> next = n.next;
+            if (copy) {
+                snapshotCopiesCounter++;
+            }
+            link(copy || n instanceof TreeNode ? new Node<>(n.hash, n.key, n.value, null) : n);
+            n = next;
+        }
     }
 
     /**
-     * Returns the index of the last updated chain.
-     *
-     * @return the index of the last updated chain.
+     * Links the node, which key is known to be absent, into the table without any equality checks.
      */
-    @Override
-    public int getLastUpdated() {
-        return lastUpdatedChain;
+    private void link(Node<K, V> node) {
+        int index = HashManager.hash(node.hash, table.length, ht);
+        if (table[index] == null) {
+            chainsCounter++;
+        }
+        if (table[index] instanceof TreeNode) {
+            TreeNode<K, V> root = (TreeNode<K, V>) table[index];
+            TreeNode<K, V> treeNode = new TreeNode<>(node.hash, node.key, node.value, treeNodesCounter++);
+            linkAfter(root, treeNode);
+            root = insertIntoTree(root, treeNode);
+            setTreeBin(index, root, table[index]);
+            maxChainSize = Math.max(maxChainSize, root.height);
+            return;
+        }
+
+        node.next = table[index];
+        table[index] = node;
+        int chainSize = 0;
+        for (Node<K, V> n = node; n != null && chainSize <= TREEIFY_THRESHOLD; n = n.next) {
+            chainSize++;
+        }
+        maxChainSize = Math.max(maxChainSize, chainSize);
+        if (chainSize > TREEIFY_THRESHOLD && table.length >= MIN_TREEIFY_CAPACITY) {
+            treeifyChain(index);
+        }
     }
 
     /**
-     * Returns the number of chains.
-     *
-     * @return the number of chains.
+     * Reshuffling. The existing nodes are relinked into the twice larger table without any equality checks.
+     * If the hash function masks the hash by the power of two table length, the chain i may only be split
+     * into the chains i and i + old length, keeping the order of its nodes.
      */
-    @Override
-    public int getNumberOfOccupied() {
-        return chainsCounter;
+    private void rehash() {
+        rehash(table.length * 2);
     }
 
-    protected static class Node<K, V> {
+    /**
+     * Relinks the existing nodes into the table of the given capacity. Only the doubled table
+     * may split the chains keeping their order.
+     */
+    private void rehash(int capacity) {
+        ownAllChains();
+        Node<K, V>[] oldChains = table;
+        table = new Node[capacity];
+        ownNewTable();
+        chainsCounter = 0;
+        maxChainSize = 0;
+        boolean split = (ht == HashManager.HashType.JCF || ht == HashManager.HashType.JCF7)
+                && Integer.bitCount(oldChains.length) == 1 && capacity == oldChains.length * 2;
+        for (int i = 0; i < oldChains.length; i++) {
+            Node<K, V> chain = oldChains[i];
+            oldChains[i] = null;
+            if (chain == null) {
+                continue;
+            }
+            if (split && !(chain instanceof TreeNode)) {
+                splitChain(chain, i, oldChains.length);
+            } else {
+                relinkChain(chain, false);
+            }
+            lastUpdatedChain = i;
+        }
+        rehashesCounter++;
+        modCount++;
+    }
 
-        // Key
-        protected K key;
-        // Value
-        protected V value;
-        // Pointer to the next node in the chain
-        protected Node<K, V> next;
+    /**
+     * Splits the chain of the old index into the lo half, which stays at the same index,
+     * and the hi half, which moves oldLength positions further.
+     */
+    private void splitChain(Node<K, V> n, int index, int oldLength) {
+        Node<K, V> loHead = null, loTail = null, hiHead = null, hiTail = null;
+        int loSize = 0, hiSize = 0;
+        while (n != null) {
+            Node<K, V> next = n.next;
+            n.next = null;
+            if (HashManager.hash(n.hash, table.length, ht) == index) {
+                if (loTail == null) {
+                    loHead = n;
+                } else {
+                    loTail.next = n;
+                }
+                loTail = n;
+                loSize++;
+            } else {
+                if (hiTail == null) {
+                    hiHead = n;
+                } else {
+                    hiTail.next = n;
+                }
+                hiTail = n;
+                hiSize++;
+            }
+            n = next;
+        }
+        setSplitHalf(index, loHead, loSize);
+        setSplitHalf(index + oldLength, hiHead, hiSize);
+    }
 
-        protected Node() {
+    private void setSplitHalf(int index, Node<K, V> head, int chainSize) {
+        if (head == null) {
+            return;
         }
+        table[index] = head;
+        chainsCounter++;
+        maxChainSize = Math.max(maxChainSize, chainSize);
+        if (chainSize > TREEIFY_THRESHOLD && table.length >= MIN_TREEIFY_CAPACITY) {
+            treeifyChain(index);
+        }
+    }
 
-        protected Node(K key, V value, Node<K, V> next) {
-            this.key = key;
-            this.value = value;
-            this.next = next;
+    /**
+     * Searching of the key-value pair in its chain or tree
+     *
+     * @param key
+     * @return key-value pair
+     */
+    private Node<K, V> getNode(int hash, K key) {
+        int index = HashManager.hash(hash, table.length, ht);
+        return findInChain(table[index], hash, key);
+    }
+
+    private Node<K, V> findInChain(Node<K, V> chain, int hash, K key) {
+        if (chain instanceof TreeNode) {
+            return findInTree((TreeNode<K, V>) chain, hash, key);
         }
+        return getInChain(hash, key, chain);
+    }
 
-        @Override
+    /**
+     * Searching on a single chain. The equals is called only for the nodes with the same hash code.
+     *
+     * @param hash hash code of the key
+     * @param key
+     * @param node
+     * @return key-value pair
+     */
+    private Node<K, V> getInChain(int hash, K key, Node<K, V> node) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in getInChain(int hash, K key, Node node)");
+        }
+        int chainSize = 0;
+        for (Node<K, V> n = node; n != null; n = n.next) {
+            chainSize++;
+            if (n.hash == hash && (n.key).equals(key)) {
+                return n;
+            }
+        }
+        maxChainSize = Math.max(maxChainSize, chainSize + 1);
+        return null;
+    }
+
+    /**
+     * Performs the action for each key-value pair of the hash table.
+     *
+     * @param action
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Node<K, V>[] nodes : oldTable == null ? new Node[][]{table} : new Node[][]{oldTable, table}) {
+            for (Node<K, V> node : nodes) {
+                for (Node<K, V> n = node; n != null; n = n.next) {
+                    action.accept(n.key, n.value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the key-value pairs of the hash table. The iteration finishes the migration of the
+     * incremental rehash first, the hash table must not be changed while it is iterated.
+     *
+     * @return the key-value pairs of the hash table.
+     */
+    public Iterable<java.util.Map.Entry<K, V>> entries() {
+        return () -> iterator(node -> node);
+    }
+
+    /**
+     * Returns the keys of the hash table, iterated the same way as the entries.
+     *
+     * @return the keys of the hash table.
+     */
+    public Iterable<K> keys() {
+        return () -> iterator(node -> node.key);
+    }
+
+    /**
+     * Returns the values of the hash table, iterated the same way as the entries.
+     *
+     * @return the values of the hash table.
+     */
+    public Iterable<V> values() {
+        return () -> iterator(node -> node.value);
+    }
+
+    private <T> Iterator<T> iterator(Function<Node<K, V>, T> mapper) {
+        finishMigration();
+        return new NodeIterator<>(table, mapper);
+    }
+
+    /**
+     * Returns the spliterator of the key-value pairs, which splits the table into the halves of its chains.
+     *
+     * @return the spliterator of the key-value pairs.
+     */
+    public Spliterator<java.util.Map.Entry<K, V>> spliterator() {
+        finishMigration();
+        return new NodeSpliterator<>(table, 0, table.length, size);
+    }
+
+    /**
+     * Returns the sequential stream of the key-value pairs.
+     *
+     * @return the stream of the key-value pairs.
+     */
+    public Stream<java.util.Map.Entry<K, V>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns the parallel stream of the key-value pairs, the ranges of chains are processed by different threads.
+     *
+     * @return the parallel stream of the key-value pairs.
+     */
+    public Stream<java.util.Map.Entry<K, V>> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (Node<K, V>[] nodes : oldTable == null ? new Node[][]{table} : new Node[][]{oldTable, table}) {
+            for (Node<K, V> node : nodes) {
+                for (Node<K, V> n = node; n != null; n = n.next) {
+                    result.append(n).append(System.lineSeparator());
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || newValue == null) {
+            return false;
+        }
+
+        int hash = key.hashCode();
+        if (oldTable != null) {
+            migrateChainOf(hash);
+            migrateStep();
+        }
+
+        Node<K, V> node = getNode(hash, key);
+        if (node == null || !node.value.equals(oldValue)) {
+            return false;
+        }
+        if (version != 0) {
+            ownChain(HashManager.hash(hash, table.length, ht));
+            node = getNode(hash, key);
+        }
+
+        node.value = newValue;
+        afterNodeAccess(node);
+        return true;
+    }
+
+    /**
+     * Grows the table at once, so the expected number of key-value pairs fits without further rehashes.
+     * The capacity is doubled as many times as needed, keeping the power of two tables for the JCF hashes.
+     * The incremental rehash mode is not used: the table is rebuilt in one go.
+     *
+     * @param expectedSize expected number of key-value pairs.
+     */
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        int capacity = table.length;
+        while (expectedSize > capacity * loadFactor && capacity <= Integer.MAX_VALUE / 2) {
+            capacity *= 2;
+        }
+        if (capacity > table.length) {
+            finishMigration();
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * Adds the keys paired with the values of the same index in parallel, using the common pool.
+     *
+     * @param keys keys.
+     * @param values values.
+     */
+    public void putAllParallel(List<? extends K> keys, List<? extends V> values) {
+        putAllParallel(keys, values, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Adds the keys paired with the values of the same index in parallel. The table is sized once,
+     * the keys are hashed by the workers of the pool, then each worker links the nodes of its own
+     * range of chains, so no locks are needed. The counters of the ranges are merged afterwards.
+     * The long chains are treeified and the keys of the tree bins are added by the calling thread.
+     *
+     * @param keys keys.
+     * @param values values.
+     * @param pool the pool of the workers.
+     */
+    @SuppressWarnings("unchecked")
+    public void putAllParallel(List<? extends K> keys, List<? extends V> values, ForkJoinPool pool) {
+        if (keys.size() < ParallelBulkLoad.MIN_PARALLEL_SIZE) {
+            putAll(keys, values);
+            return;
+        }
+
+        ensureCapacity(size + keys.size());
+        finishMigration();
+        ownAllChains();
+        ParallelBulkLoad load = new ParallelBulkLoad(keys, values, table.length, ht, pool);
+        ParallelBulkLoad.RangeFill[] fills = load.fillRanges((fill, range) -> fillRange(load, range, fill));
+        for (ParallelBulkLoad.RangeFill fill : fills) {
+            size += fill.inserted;
+            modCount++;
+            chainsCounter += fill.newChains;
+            maxChainSize = Math.max(maxChainSize, fill.maxChainSize);
+            if (fill.lastUpdated != -1) {
+                lastUpdatedChain = fill.lastUpdated;
+            }
+            for (int index : fill.longChains) {
+                if (table.length >= MIN_TREEIFY_CAPACITY && !(table[index] instanceof TreeNode)) {
+                    treeifyChain(index);
+                }
+            }
+        }
+        if (bloomFilter != null) {
+            for (int hash : load.hashes) {
+                addToFilter(hash);
+            }
+        }
+        for (ParallelBulkLoad.RangeFill fill : fills) {
+            for (int i : fill.deferred) {
+                put((K) load.keys[i], (V) load.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds the entries of the range, the worker touches the chains of the range only.
+     */
+    @SuppressWarnings("unchecked")
+    private void fillRange(ParallelBulkLoad load, int range, ParallelBulkLoad.RangeFill fill) {
+        entries:
+        for (int p = load.bounds[range]; p < load.bounds[range + 1]; p++) {
+            int i = load.order[p];
+            int index = load.indices[i];
+            int hash = load.hashes[i];
+            K key = (K) load.keys[i];
+            Node<K, V> chain = table[index];
+            if (chain instanceof TreeNode) {
+                fill.deferred.add(i);
+                continue;
+            }
+
+            int chainSize = 0;
+            for (Node<K, V> n = chain; n != null; n = n.next) {
+                if (n.hash == hash && n.key.equals(key)) {
+                    n.value = (V) load.values[i];
+                    fill.lastUpdated = index;
+                    continue entries;
+                }
+                chainSize++;
+            }
+            if (chain == null) {
+                fill.newChains++;
+            }
+            table[index] = new Node<>(hash, key, (V) load.values[i], chain);
+            fill.inserted++;
+            fill.lastUpdated = index;
+            fill.maxChainSize = Math.max(fill.maxChainSize, chainSize + 1);
+            if (chainSize == TREEIFY_THRESHOLD) {
+                fill.longChains.add(index);
+            }
+        }
+    }
+
+    //--------------------------------------------------------------------------
+    //  Hooks of the subclasses
+    //--------------------------------------------------------------------------
+
+    /**
+     * Creates the node of the new key-value pair, the subclasses may keep more links in their nodes.
+     */
+    protected Node<K, V> newNode(int hash, K key, V value, Node<K, V> next) {
+        return new Node<>(hash, key, value, next);
+    }
+
+    /**
+     * Checks if the long chains are converted into trees. The tree bins replace the nodes of the chain
+     * by the tree nodes, so the subclasses which keep their own nodes turn them off.
+     */
+    protected boolean usesTreeBins() {
+        return true;
+    }
+
+    /**
+     * Called after the value of the existing key was read or changed.
+     */
+    protected void afterNodeAccess(Node<K, V> node) {
+    }
+
+    /**
+     * Called after the new node was added and the table was grown if needed.
+     */
+    protected void afterNodeInsertion(Node<K, V> node) {
+    }
+
+    /**
+     * Called after the node was taken out of its chain or tree.
+     */
+    protected void afterNodeRemoval(Node<K, V> node) {
+    }
+
+    //--------------------------------------------------------------------------
+    //  Snapshots
+    //--------------------------------------------------------------------------
+
+    /**
+     * Returns the immutable view of the hash table at this moment. The snapshot itself takes O(1),
+     * the writes after it pay by copying the table and the chains they change, once per snapshot.
+     * The incremental rehash in progress is finished first.
+     *
+     * @return the snapshot of the hash table.
+     */
+    public Snapshot<K, V> snapshot() {
+        finishMigration();
+        version++;
+        modCount++;
+        snapshotCopiesCounter = 0;
+        return new Snapshot<>(table, size, ht);
+    }
+
+    /**
+     * Copies the table shared with a snapshot. The chains stay shared until they are changed.
+     */
+    private void ownTable() {
+        if (tableVersion != version) {
+            table = table.clone();
+            chainVersions = new int[table.length];
+            tableVersion = version;
+        }
+    }
+
+    /**
+     * Copies the chain shared with a snapshot before its first change.
+     *
+     * @param index index of the chain
+     */
+    private void ownChain(int index) {
+        if (version == 0) {
+            return;
+        }
+        ownTable();
+        if (chainVersions[index] != version) {
+            copyChain(index);
+            chainVersions[index] = version;
+        }
+    }
+
+    private void ownAllChains() {
+        if (version == 0) {
+            return;
+        }
+        for (int i = 0; i < table.length; i++) {
+            ownChain(i);
+        }
+    }
+
+    /**
+     * Marks the chains of the new table as owned by the map: they consist of the copied or owned nodes only.
+     */
+    private void ownNewTable() {
+        if (version == 0) {
+            return;
+        }
+        chainVersions = new int[table.length];
+        Arrays.fill(chainVersions, version);
+        tableVersion = version;
+    }
+
+    private void copyChain(int index) {
+        if (table[index] instanceof TreeNode) {
+            // The tree is rebuilt of the new nodes
+            treeifyChain(index);
+            for (Node<K, V> n = table[index]; n != null; n = n.next) {
+                snapshotCopiesCounter++;
+            }
+            return;
+        }
+
+        Node<K, V> head = null, tail = null;
+        for (Node<K, V> n = table[index]; n != null; n = n.next) {
+            Node<K, V> node = new Node<>(n.hash, n.key, n.value, null);
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            snapshotCopiesCounter++;
+        }
+        table[index] = head;
+    }
+
+    /**
+     * Returns the number of lookups the Bloom filter answered without searching the table.
+     *
+     * @return the number of filter negatives, -1 if the filter is not enabled.
+     */
+    @Override
+    public int getFilterNegativesCounter() {
+        return bloomFilter == null ? -1 : filterNegativesCounter;
+    }
+
+    /**
+     * Returns the number of lookups of absent keys the Bloom filter let through to the table.
+     *
+     * @return the number of filter false positives, -1 if the filter is not enabled.
+     */
+    @Override
+    public int getFilterFalsePositivesCounter() {
+        return bloomFilter == null ? -1 : filterFalsePositivesCounter;
+    }
+
+    /**
+     * Returns the number of nodes copied by the writes since the last snapshot,
+     * i.e. the memory the map and the snapshot do not share any more.
+     *
+     * @return the number of copied nodes.
+     */
+    @Override
+    public int getSnapshotCopiesCounter() {
+        return snapshotCopiesCounter;
+    }
+
+    public boolean containsValue(Object value) {
+        int index = HashManager.hash(value.hashCode(), this.table.length, this.ht);
+        return this.table[index] != null;
+    }
+
+    /**
+     * Returns the maximum length of the chain. For a tree bin the height of the tree is taken,
+     * i.e. the longest path a search follows.
+     *
+     * @return Maximum chain length.
+     */
+    @Override
+    public int getMaxChainSize() {
+        return maxChainSize;
+    }
+
+    /**
+     * Returns the number of rehashes occurred in the hash table.
+     *
+     * @return Number of reshuffles.
+     */
+    @Override
+    public int getRehashesCounter() {
+        return rehashesCounter;
+    }
+
+    /**
+     * Returns the number of rehashes into a smaller table.
+     *
+     * @return Number of shrinks.
+     */
+    @Override
+    public int getShrinksCounter() {
+        return shrinksCounter;
+    }
+
+    /**
+     * Returns the capacity of the hash table.
+     *
+     * @return Hash table capacity.
+     */
+    @Override
+    public int getTableCapacity() {
+        return table.length;
+    }
+
+    /**
+     * Returns the number of old table chains left to migrate, 0 if no migration is in progress.
+     *
+     * @return the number of chains left to migrate.
+     */
+    @Override
+    public int getMigrationChainsLeft() {
+        return oldTable == null ? 0 : oldTable.length - migrationIndex;
+    }
+
+    /**
+     * Returns the index of the last updated chain.
+     *
+     * @return the index of the last updated chain.
+     */
+    @Override
+    public int getLastUpdated() {
+        return lastUpdatedChain;
+    }
+
+    /**
+     * Returns the number of chains.
+     *
+     * @return the number of chains.
+     */
+    @Override
+    public int getNumberOfOccupied() {
+        return chainsCounter;
+    }
+
+    //--------------------------------------------------------------------------
+    //  Tree bins
+    //--------------------------------------------------------------------------
+
+    /**
+     * Converts the chain into an AVL tree ordered by hash and then by key. The tree nodes
+     * stay linked into a chain by next, with the root in front, so the bin can be walked as a chain.
+     *
+     * @param index index of the chain
+     */
+    private void treeifyChain(int index) {
+        if (!usesTreeBins()) {
+            return;
+        }
+        TreeNode<K, V> root = null;
+        TreeNode<K, V> head = null;
+        for (Node<K, V> n = table[index]; n != null; n = n.next) {
+            TreeNode<K, V> node = new TreeNode<>(n.hash, n.key, n.value, treeNodesCounter++);
+            linkAfter(head, node);
+            head = head == null ? node : head;
+            root = insertIntoTree(root, node);
+        }
+        setTreeBin(index, root, head);
+        maxChainSize = Math.max(maxChainSize, root.height);
+    }
+
+    /**
+     * Converts the tree back into a chain.
+     *
+     * @param index index of the tree
+     */
+    private void untreeifyChain(int index) {
+        Node<K, V> head = null;
+        for (Node<K, V> n = table[index]; n != null; n = n.next) {
+            head = new Node<>(n.hash, n.key, n.value, head);
+        }
+        table[index] = head;
+    }
+
+    private V putInTree(int index, int hash, K key, V value) {
+        TreeNode<K, V> node = findInTree((TreeNode<K, V>) table[index], hash, key);
+        if (node != null) {
+            node.value = value;
+            lastUpdatedChain = index;
+            afterNodeAccess(node);
+            return value;
+        }
+
+        addTreeNode(index, hash, key, value);
+        return value;
+    }
+
+    private void addTreeNode(int index, int hash, K key, V value) {
+        TreeNode<K, V> root = (TreeNode<K, V>) table[index];
+        TreeNode<K, V> node = new TreeNode<>(hash, key, value, treeNodesCounter++);
+        linkAfter(root, node);
+        root = insertIntoTree(root, node);
+        setTreeBin(index, root, table[index]);
+        maxChainSize = Math.max(maxChainSize, root.height);
+        size++;
+        modCount++;
+        addToFilter(hash);
+
+        if (size > table.length * loadFactor) {
+            resize();
+        } else {
+            lastUpdatedChain = index;
+        }
+        afterNodeInsertion(node);
+    }
+
+    private void removeFromTree(int index, TreeNode<K, V> node) {
+        Node<K, V> head = table[index] == node ? node.next : table[index];
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        }
+        if (node.next != null) {
+            ((TreeNode<K, V>) node.next).prev = node.prev;
+        }
+
+        TreeNode<K, V> root = deleteFromTree((TreeNode<K, V>) table[index], node);
+        if (root == null) {
+            table[index] = null;
+            return;
+        }
+        setTreeBin(index, root, head);
+
+        int chainSize = 0;
+        for (Node<K, V> n = root; n != null && chainSize <= UNTREEIFY_THRESHOLD; n = n.next) {
+            chainSize++;
+        }
+        if (chainSize <= UNTREEIFY_THRESHOLD) {
+            untreeifyChain(index);
+        }
+    }
+
+    /**
+     * Searches the tree for the key. Hashes and comparable keys direct the search,
+     * but when they do not decide, both subtrees have to be searched.
+     */
+    private static <K, V> TreeNode<K, V> findInTree(TreeNode<K, V> node, int hash, K key) {
+        while (node != null) {
+            int cmp = Integer.compare(hash, node.hash);
+            if (cmp == 0) {
+                cmp = compareKeys(key, node.key);
+            }
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                node = node.right;
+            } else if (node.key.equals(key)) {
+                return node;
+            } else {
+                TreeNode<K, V> found = findInTree(node.right, hash, key);
+                if (found != null) {
+                    return found;
+                }
+                node = node.left;
+            }
+        }
+        return null;
+    }
+
+    private TreeNode<K, V> insertIntoTree(TreeNode<K, V> root, TreeNode<K, V> node) {
+        if (root == null) {
+            return node;
+        }
+        if (compareNodes(node, root) < 0) {
+            root.left = insertIntoTree(root.left, node);
+        } else {
+            root.right = insertIntoTree(root.right, node);
+        }
+        return balance(root);
+    }
+
+    private TreeNode<K, V> deleteFromTree(TreeNode<K, V> root, TreeNode<K, V> node) {
+        if (root == node) {
+            if (root.left == null) {
+                return root.right;
+            }
+            if (root.right == null) {
+                return root.left;
+            }
+            TreeNode<K, V> successor = root.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteFromTree(root.right, successor);
+            successor.left = root.left;
+            return balance(successor);
+        }
+        if (compareNodes(node, root) < 0) {
+            root.left = deleteFromTree(root.left, node);
+        } else {
+            root.right = deleteFromTree(root.right, node);
+        }
+        return balance(root);
+    }
+
+    private TreeNode<K, V> balance(TreeNode<K, V> node) {
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            node = rotateRight(node);
+        } else if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            node = rotateLeft(node);
+        } else {
+            updateHeight(node);
+        }
+        return node;
+    }
+
+    private TreeNode<K, V> rotateLeft(TreeNode<K, V> node) {
+        TreeNode<K, V> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        updateHeight(node);
+        updateHeight(right);
+        return right;
+    }
+
+    private TreeNode<K, V> rotateRight(TreeNode<K, V> node) {
+        TreeNode<K, V> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        updateHeight(node);
+        updateHeight(left);
+        return left;
+    }
+
+    private static int height(TreeNode<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void updateHeight(TreeNode<?, ?> node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+    }
+
+    /**
+     * Total order of the tree nodes: by hash, then by key, then by the sequence number.
+     */
+    private int compareNodes(TreeNode<K, V> a, TreeNode<K, V> b) {
+        int cmp = Integer.compare(a.hash, b.hash);
+        if (cmp == 0) {
+            cmp = compareKeys(a.key, b.key);
+        }
+        return cmp != 0 ? cmp : Long.compare(a.sequence, b.sequence);
+    }
+
+    /**
+     * Keys of different classes are ordered by the class name, keys of the same
+     * Comparable class by compareTo. Otherwise the order is not decided.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareKeys(Object a, Object b) {
+        if (a.getClass() != b.getClass()) {
+            return a.getClass().getName().compareTo(b.getClass().getName());
+        }
+        if (a instanceof Comparable) {
+            try {
+                return ((Comparable) a).compareTo(b);
+            } catch (ClassCastException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Links the tree node into the chain of the tree bin right after the given node.
+     */
+    private static <K, V> void linkAfter(TreeNode<K, V> previous, TreeNode<K, V> node) {
+        if (previous == null) {
+            return;
+        }
+        node.prev = previous;
+        node.next = previous.next;
+        if (previous.next != null) {
+            ((TreeNode<K, V>) previous.next).prev = node;
+        }
+        previous.next = node;
+    }
+
+    /**
+     * Places the tree root in front of the chain of the tree bin and the chain into the table.
+     */
+    private void setTreeBin(int index, TreeNode<K, V> root, Node<K, V> head) {
+        if (root != head) {
+            root.prev.next = root.next;
+            if (root.next != null) {
+                ((TreeNode<K, V>) root.next).prev = root.prev;
+            }
+            root.next = head;
+            root.prev = null;
+            ((TreeNode<K, V>) head).prev = root;
+        }
+        table[index] = root;
+    }
+
+    /**
+     * The immutable view of the hash table at the moment of the snapshot. The map never changes
+     * the table and the chains it shares with the snapshot, so the snapshot may be read by
+     * other threads without any locks.
+     *
+     * @param <K> key type of hash table
+     * @param <V> value type of hash table
+     */
+    public static class Snapshot<K, V> implements Map<K, V> {
+
+        // the table of the map at the moment of the snapshot
+        private final Node<K, V>[] table;
+        // the amount of key-value pairs
+        private final int size;
+        // hash function
+        private final HashManager.HashType ht;
+
+        private Snapshot(Node<K, V>[] table, int size, HashManager.HashType ht) {
+            this.table = table;
+            this.size = size;
+            this.ht = ht;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException("Snapshot is immutable");
+        }
+
+        @Override
+        public V put(K key, V value) {
+            throw new UnsupportedOperationException("Snapshot is immutable");
+        }
+
+        @Override
+        public V get(K key) {
+            if (key == null) {
+                throw new IllegalArgumentException("Key is null in get(K key)");
+            }
+
+            int hash = key.hashCode();
+            Node<K, V> chain = table[HashManager.hash(hash, table.length, ht)];
+            if (chain instanceof TreeNode) {
+                TreeNode<K, V> node = findInTree((TreeNode<K, V>) chain, hash, key);
+                return node == null ? null : node.value;
+            }
+            for (Node<K, V> n = chain; n != null; n = n.next) {
+                if (n.hash == hash && n.key.equals(key)) {
+                    return n.value;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public V remove(K key) {
+            throw new UnsupportedOperationException("Snapshot is immutable");
+        }
+
+        @Override
+        public boolean contains(K key) {
+            if (key == null) {
+                throw new IllegalArgumentException("Key is null in contains(K key)");
+            }
+
+            return get(key) != null;
+        }
+
+        @Override
+        public boolean replace(K key, V oldValue, V newValue) {
+            throw new UnsupportedOperationException("Snapshot is immutable");
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            for (Node<K, V> chain : table) {
+                for (Node<K, V> n = chain; n != null; n = n.next) {
+                    if (n.value.equals(value)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Performs the action for each key-value pair of the snapshot, chain by chain.
+         *
+         * @param action
+         */
+        @Override
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            for (Node<K, V> chain : table) {
+                for (Node<K, V> n = chain; n != null; n = n.next) {
+                    action.accept(n.key, n.value);
+                }
+            }
+        }
+
+        /**
+         * Returns the stream of the key-value pairs of the snapshot.
+         *
+         * @return the stream of the key-value pairs.
+         */
+        public Stream<java.util.Map.Entry<K, V>> stream() {
+            return StreamSupport.stream(new NodeSpliterator<>(table, 0, table.length, size), false);
+        }
+
+        /**
+         * Returns the parallel stream of the key-value pairs of the snapshot. The snapshot never changes,
+         * so it can be streamed while the map is changed.
+         *
+         * @return the parallel stream of the key-value pairs.
+         */
+        public Stream<java.util.Map.Entry<K, V>> parallelStream() {
+            return StreamSupport.stream(new NodeSpliterator<>(table, 0, table.length, size), true);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder();
+            forEach((key, value) -> result.append(key).append("=").append(value).append(System.lineSeparator()));
+            return result.toString();
+        }
+    }
+
+    private static class NodeIterator<K, V, T> implements Iterator<T> {
+
+        private final Node<K, V>[] table;
+        private final Function<Node<K, V>, T> mapper;
+        // the next chain to visit
+        private int index = 0;
+        // the next node to return
+        private Node<K, V> next;
+
+        private NodeIterator(Node<K, V>[] table, Function<Node<K, V>, T> mapper) {
+            this.table = table;
+            this.mapper = mapper;
+            advance();
+        }
+
+        private void advance() {
+            while (next == null && index < table.length) {
+                next = table[index++];
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = next;
+            next = node.next;
+            advance();
+            return mapper.apply(node);
+        }
+    }
+
+    /**
+     * Visits the chains index .. fence - 1 of the table, the split gives away the first half of them.
+     */
+    private static class NodeSpliterator<K, V> implements Spliterator<java.util.Map.Entry<K, V>> {
+
+        private final Node<K, V>[] table;
+        // the next chain to visit
+        private int index;
+        // one past the last chain to visit
+        private final int fence;
+        // the estimated number of the nodes left, exact until the first split
+        private long estimatedSize;
+        private boolean sized = true;
+        // the next node of the current chain
+        private Node<K, V> current;
+
+        private NodeSpliterator(Node<K, V>[] table, int index, int fence, long estimatedSize) {
+            this.table = table;
+            this.index = index;
+            this.fence = fence;
+            this.estimatedSize = estimatedSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super java.util.Map.Entry<K, V>> action) {
+            while (current == null) {
+                if (index >= fence) {
+                    return false;
+                }
+                current = table[index++];
+            }
+            Node<K, V> node = current;
+            current = node.next;
+            action.accept(node);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super java.util.Map.Entry<K, V>> action) {
+            for (Node<K, V> n = current; n != null; n = n.next) {
+                action.accept(n);
+            }
+            current = null;
+            for (; index < fence; index++) {
+                for (Node<K, V> n = table[index]; n != null; n = n.next) {
+                    action.accept(n);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<java.util.Map.Entry<K, V>> trySplit() {
+            int middle = (index + fence) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            sized = false;
+            estimatedSize >>>= 1;
+            NodeSpliterator<K, V> prefix = new NodeSpliterator<>(table, index, middle, estimatedSize);
+            prefix.sized = false;
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimatedSize;
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL | (sized ? SIZED : 0);
+        }
+    }
+
+    protected static class Node<K, V> implements java.util.Map.Entry<K, V> {
+
+        // Hash code of the key, compared before calling equals and reused while rehashing
+        protected final int hash;
+        // Key
+        protected K key;
+        // Value
+        protected V value;
+        // Pointer to the next node in the chain
+        protected Node<K, V> next;
+
+        protected Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * The node can be shared with a snapshot, so its value is changed by the map only.
+         */
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException("Entries of the map are read-only");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof java.util.Map.Entry)) {
+                return false;
+            }
+            java.util.Map.Entry<?, ?> entry = (java.util.Map.Entry<?, ?>) o;
+            return key.equals(entry.getKey()) && value.equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash ^ value.hashCode();
+        }
+
+        @Override
         public String toString() {
             return key + "=" + value;
         }
     }
+
+    protected static class TreeNode<K, V> extends Node<K, V> {
+
+        // Sequence number, orders the nodes which keys can not be compared
+        protected final long sequence;
+        // Left and right subtrees
+        protected TreeNode<K, V> left, right;
+        // Height of the subtree
+        protected int height = 1;
+        // Pointer to the previous node in the chain of the tree bin
+        protected TreeNode<K, V> prev;
+
+        protected TreeNode(int hash, K key, V value, long sequence) {
+            super(hash, key, value, null);
+            this.sequence = sequence;
+        }
+    }
 }
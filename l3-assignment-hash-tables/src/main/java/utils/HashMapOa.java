@@ -7,8 +7,19 @@ package utils;
 
 
 import java.util.Arrays;
-import java.util.Objects;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author Darius
@@ -19,13 +30,17 @@ public class HashMapOa<K, V> implements EvaluableMap<K, V> {
 
         LINEAR,
         QUADRATIC,
-        DOUBLE_HASHING
+        DOUBLE_HASHING,
+        ROBIN_HOOD
     }
 
     public static final int DEFAULT_INITIAL_CAPACITY = 8;
     public static final float DEFAULT_LOAD_FACTOR = 0.75f;
     public static final HashManager.HashType DEFAULT_HASH_TYPE = HashManager.HashType.DIVISION;
     public static final OpenAddressingType DEFAULT_OPEN_ADDRESSING_TYPE = OpenAddressingType.LINEAR;
+    public static final float DEFAULT_MAX_TOMBSTONE_FACTOR = 0.25f;
+    // The table never shrinks after removals by default
+    public static final float DEFAULT_LOW_WATER_FACTOR = 0.0f;
 
     // Hash table
     protected Entry<K, V>[] table;
@@ -35,18 +50,36 @@ public class HashMapOa<K, V> implements EvaluableMap<K, V> {
     protected float loadFactor;
     // Hash function
     protected HashManager.HashType ht;
+    // The table is cleaned up by the rehash of the same size when DELETED places exceed this part of it
+    protected float maxTombstoneFactor = DEFAULT_MAX_TOMBSTONE_FACTOR;
+    // The table shrinks when the removals leave fewer key-value pairs than this part of it, 0 if it never shrinks
+    protected float lowWaterFactor = DEFAULT_LOW_WATER_FACTOR;
     //--------------------------------------------------------------------------
     //  Parameters of hash table
     //--------------------------------------------------------------------------
     // The amount of rehashes
     protected int rehashesCounter = 0;
+    // The amount of rehashes into a smaller table
+    protected int shrinksCounter = 0;
     // The index of last updated element
     protected int lastUpdated = 0;
     // The number of occupied places in the hash table
     protected int numberOfOccupied = 0;
+    // The number of places marked as DELETED
+    protected int tombstonesCounter = 0;
 
     private final Entry<K, V> DELETED = new Entry<>();
     private final OpenAddressingType oaType;
+    // The number of probes made by the last findPosition call
+    private int lastProbeDistance = 0;
+    // The number of structural changes, the compute and merge operations detect the changes made by their function
+    private int modCount = 0;
+    // The filter of the keys in front of the lookups, null until it is enabled
+    private BloomFilter bloomFilter;
+    // The number of lookups the filter answered without searching the table
+    private int filterNegativesCounter = 0;
+    // The number of lookups of the absent keys the filter let through
+    private int filterFalsePositivesCounter = 0;
 
     public HashMapOa() {
         this(DEFAULT_HASH_TYPE);
@@ -79,6 +112,22 @@ public class HashMapOa<K, V> implements EvaluableMap<K, V> {
         this.oaType = oaType;
     }
 
+    /**
+     * Sets the part of the table the DELETED places may take: the removal which exceeds it rehashes
+     * the table into the table of the same size, which drops them. The addition after which the key-value
+     * pairs and the DELETED places together exceed the load factor rehashes the same way. The linear probing
+     * and the Robin Hood hashing shift the entries back instead, so they leave no DELETED places.
+     *
+     * @param maxTombstoneFactor max tombstone factor, 0 &lt; factor &lt;= 1.
+     */
+    public void setMaxTombstoneFactor(float maxTombstoneFactor) {
+        if ((maxTombstoneFactor <= 0.0) || (maxTombstoneFactor > 1.0)) {
+            throw new IllegalArgumentException("Illegal tombstone factor: " + maxTombstoneFactor);
+        }
+
+        this.maxTombstoneFactor = maxTombstoneFactor;
+    }
+
     /**
      * Checks if the hash table is empty
      */
@@ -106,7 +155,13 @@ public class HashMapOa<K, V> implements EvaluableMap<K, V> {
         size = 0;
         lastUpdated = 0;
         rehashesCounter = 0;
+        shrinksCounter = 0;
         numberOfOccupied = 0;
+        tombstonesCounter = 0;
+        modCount++;
+        if (bloomFilter != null) {
+            bloomFilter.clear();
+        }
     }
 
     @Override
@@ -123,22 +178,22 @@ public class HashMapOa<K, V> implements EvaluableMap<K, V> {
         if (key == null || value == null) {
             throw new IllegalArgumentException("Key or value is null in put(K key, V value)");
         }
-        int position = findPosition(key, true);
+
+        return put(key.hashCode(), key, value);
+    }
+
+    private V put(int hash, K key, V value) {
+        if (oaType == OpenAddressingType.ROBIN_HOOD) {
+            return putRobinHood(hash, key, value);
+        }
+        int position = findPosition(hash, key, true);
         if (position == -1) {
             rehash();
-            return put(key, value);
+            return put(hash, key, value);
         }
 
-        if (table[position] == null || DELETED.equals(table[position])) {
-            table[position] = new Entry(key, value);
-            size++;
-
-            if (size > table.length * loadFactor) {
-                rehash();
-            } else {
-                numberOfOccupied++;
-                lastUpdated = position;
-            }
+        if (table[position] == null || table[position] == DELETED) {
+            addEntry(position, hash, key, value, lastProbeDistance);
         } else {
             table[position].value = value;
             lastUpdated = position;
@@ -147,70 +202,686 @@ public class HashMapOa<K, V> implements EvaluableMap<K, V> {
         return value;
     }
 
+    /**
+     * Places the new entry into the empty or DELETED place, then grows the table if needed.
+     */
+    private void addEntry(int position, int hash, K key, V value, int probeDistance) {
+        if (table[position] == DELETED) {
+            tombstonesCounter--;
+        }
+        table[position] = new Entry<>(hash, key, value, probeDistance);
+        size++;
+        modCount++;
+        addToFilter(hash);
+
+        if (size > table.length * loadFactor) {
+            rehash();
+        } else if (size + tombstonesCounter > table.length * loadFactor) {
+            // The DELETED places would leave no empty place to end the probing of the absent keys
+            rehash(table.length);
+        } else {
+            numberOfOccupied++;
+            lastUpdated = position;
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key or value is null in putIfAbsent(K key, V value)");
+        }
+        int hash = key.hashCode();
+        int position = locate(hash, key);
+        if (isEntry(position)) {
+            return table[position].value;
+        }
+        addLocated(position, hash, key, value, lastProbeDistance);
+        return null;
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in computeIfAbsent(K key, Function mappingFunction)");
+        }
+        int hash = key.hashCode();
+        int position = locate(hash, key);
+        if (isEntry(position)) {
+            return table[position].value;
+        }
+        int probeDistance = lastProbeDistance;
+        int expectedModCount = modCount;
+        V value = mappingFunction.apply(key);
+        checkForComodification(expectedModCount);
+        if (value != null) {
+            addLocated(position, hash, key, value, probeDistance);
+        }
+        return value;
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in computeIfPresent(K key, BiFunction remappingFunction)");
+        }
+        int position = locate(key.hashCode(), key);
+        if (!isEntry(position)) {
+            return null;
+        }
+        int expectedModCount = modCount;
+        V value = remappingFunction.apply(key, table[position].value);
+        checkForComodification(expectedModCount);
+        setLocated(position, value);
+        return value;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in compute(K key, BiFunction remappingFunction)");
+        }
+        int hash = key.hashCode();
+        int position = locate(hash, key);
+        boolean present = isEntry(position);
+        int probeDistance = lastProbeDistance;
+        int expectedModCount = modCount;
+        V value = remappingFunction.apply(key, present ? table[position].value : null);
+        checkForComodification(expectedModCount);
+        if (present) {
+            setLocated(position, value);
+        } else if (value != null) {
+            addLocated(position, hash, key, value, probeDistance);
+        }
+        return value;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key or value is null in merge(K key, V value, BiFunction remappingFunction)");
+        }
+        int hash = key.hashCode();
+        int position = locate(hash, key);
+        if (!isEntry(position)) {
+            addLocated(position, hash, key, value, lastProbeDistance);
+            return value;
+        }
+        int expectedModCount = modCount;
+        V newValue = remappingFunction.apply(table[position].value, value);
+        checkForComodification(expectedModCount);
+        setLocated(position, newValue);
+        return newValue;
+    }
+
+    /**
+     * Finds the place of the key, or the place for it: the first DELETED or the empty place of its probing.
+     * The compute and merge operations locate the key once, then add the absent key into the found place or
+     * set the value of the located entry. They keep the probe distance of the place before calling their
+     * function, since the lookups of the function probe again. The function which adds or removes keys
+     * makes them throw ConcurrentModificationException.
+     * Only the Robin Hood table and the full table probe again to add the absent key.
+     */
+    private int locate(int hash, K key) {
+        return oaType == OpenAddressingType.ROBIN_HOOD ? findPositionRobinHood(hash, key) : findPosition(hash, key, true);
+    }
+
+    private boolean isEntry(int position) {
+        return position != -1 && table[position] != null && table[position] != DELETED;
+    }
+
+    private void addLocated(int position, int hash, K key, V value, int probeDistance) {
+        if (position == -1) {
+            put(hash, key, value);
+        } else {
+            addEntry(position, hash, key, value, probeDistance);
+        }
+    }
+
+    private void checkForComodification(int expectedModCount) {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Sets the value of the located entry, the null value removes the entry.
+     */
+    private void setLocated(int position, V value) {
+        if (value != null) {
+            table[position].value = value;
+            lastUpdated = position;
+        } else if (oaType == OpenAddressingType.ROBIN_HOOD) {
+            removeRobinHoodAt(position);
+        } else {
+            removeAt(position);
+        }
+    }
+
+    /**
+     * Puts the Bloom filter in front of the lookups: get and contains of the keys the filter rejects
+     * return without probing the table. The filter is rebuilt larger when more keys than expected were
+     * added, which also drops the bits of the removed keys.
+     *
+     * @param expectedSize expected number of keys.
+     * @param falsePositiveRate the part of the lookups of absent keys which still probe the table.
+     */
+    public void enableBloomFilter(int expectedSize, double falsePositiveRate) {
+        bloomFilter = new BloomFilter(Math.max(expectedSize, size), falsePositiveRate);
+        filterNegativesCounter = 0;
+        filterFalsePositivesCounter = 0;
+        addAllToFilter();
+    }
+
+    private void addToFilter(int hash) {
+        if (bloomFilter == null) {
+            return;
+        }
+        bloomFilter.add(hash);
+        if (bloomFilter.isSaturated()) {
+            bloomFilter = new BloomFilter(Math.max(bloomFilter.getExpectedSize(), 2 * size), bloomFilter.getFalsePositiveRate());
+            addAllToFilter();
+        }
+    }
+
+    private void addAllToFilter() {
+        for (Entry<K, V> entry : table) {
+            if (entry != null && entry != DELETED) {
+                bloomFilter.add(entry.hash);
+            }
+        }
+    }
+
     @Override
     public V get(K key) {
         if (key == null) {
             throw new IllegalArgumentException("Key is null in get(K key)");
         }
 
-        int position = findPosition(key, false);
-        if (position != -1 && table[position] != null && table[position] != DELETED) {
+        int hash = key.hashCode();
+        if (bloomFilter != null && !bloomFilter.mightContain(hash)) {
+            filterNegativesCounter++;
+            return null;
+        }
+
+        int position = oaType == OpenAddressingType.ROBIN_HOOD
+                ? findPositionRobinHood(hash, key)
+                : findPosition(hash, key, false);
+        if (isEntry(position)) {
             return table[position].value;
         }
 
+        if (bloomFilter != null) {
+            filterFalsePositivesCounter++;
+        }
         return null;
     }
 
+    /**
+     * Removes the pair from the hash table. With linear probing the following entries of the cluster
+     * are shifted back into the hole, with other probing types the place is marked as DELETED.
+     *
+     * @param key
+     * @return value associated with key or null, if no value is associated with the key.
+     */
     @Override
     public V remove(K key) {
-        throw new UnsupportedOperationException("Students must implement the method remove(K key)");
+        if (oaType == OpenAddressingType.ROBIN_HOOD) {
+            return removeRobinHood(key);
+        }
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in remove(K key)");
+        }
+
+        int position = findPosition(key.hashCode(), key, false);
+        if (position == -1 || table[position] == null) {
+            return null;
+        }
+        return removeAt(position);
+    }
+
+    private V removeAt(int position) {
+        V value = table[position].value;
+        size--;
+        modCount++;
+        numberOfOccupied--;
+        lastUpdated = position;
+        if (oaType == OpenAddressingType.LINEAR) {
+            shiftBackward(position);
+        } else {
+            table[position] = DELETED;
+            tombstonesCounter++;
+        }
+        // The shrink drops the DELETED places too
+        shrinkIfSparse();
+        if (tombstonesCounter > table.length * maxTombstoneFactor) {
+            rehash(table.length);
+        }
+        return value;
+    }
+
+    /**
+     * Sets the low water factor: the removal which leaves fewer key-value pairs than this part of the table
+     * shrinks the table, until the pairs fill it up to a half of the load factor. The gap between the low water
+     * factor and the load factor keeps the table from growing and shrinking back and forth.
+     *
+     * @param lowWaterFactor low water factor, 0 if the table never shrinks.
+     */
+    public void setLowWaterFactor(float lowWaterFactor) {
+        if (lowWaterFactor < 0.0 || lowWaterFactor >= loadFactor / 4) {
+            throw new IllegalArgumentException("Illegal low water factor: " + lowWaterFactor);
+        }
+
+        this.lowWaterFactor = lowWaterFactor;
+    }
+
+    /**
+     * Shrinks the table to the smallest one which holds the key-value pairs within the load factor.
+     */
+    public void trimToSize() {
+        shrink(shrunkCapacity(loadFactor));
+    }
+
+    private void shrinkIfSparse() {
+        if (size < table.length * lowWaterFactor) {
+            shrink(shrunkCapacity(loadFactor / 2));
+        }
+    }
+
+    /**
+     * Returns the capacity of the table halved while the key-value pairs fill it within the given load.
+     * The capacity does not go below the default initial one, nor becomes odd, so the doubled
+     * capacities of the table keep being powers of two.
+     */
+    private int shrunkCapacity(float load) {
+        int capacity = table.length;
+        while (capacity % 2 == 0 && capacity / 2 >= DEFAULT_INITIAL_CAPACITY && size <= capacity / 2 * load) {
+            capacity /= 2;
+        }
+        return capacity;
+    }
+
+    private void shrink(int capacity) {
+        if (capacity < table.length) {
+            rehash(capacity);
+            shrinksCounter++;
+        }
+    }
+
+    /**
+     * Backward shift deletion for linear probing. An entry of the cluster may fill the hole
+     * if its home slot does not lie between the hole and the entry.
+     */
+    private void shiftBackward(int hole) {
+        table[hole] = null;
+        for (int next = (hole + 1) % table.length; table[next] != null; next = (next + 1) % table.length) {
+            int shift = (next - hole + table.length) % table.length;
+            if (table[next].probeDistance >= shift) {
+                table[hole] = table[next];
+                table[hole].probeDistance -= shift;
+                table[next] = null;
+                hole = next;
+            }
+        }
+    }
+
+    /**
+     * Performs the action for each key-value pair of the hash table.
+     *
+     * @param action
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Entry<K, V> entry : table) {
+            if (entry != null && entry != DELETED) {
+                action.accept(entry.key, entry.value);
+            }
+        }
+    }
+
+    /**
+     * Returns the key-value pairs of the hash table. The hash table must not be changed while they are iterated.
+     *
+     * @return the key-value pairs of the hash table.
+     */
+    public Iterable<java.util.Map.Entry<K, V>> entries() {
+        return () -> new EntryIterator<>(table, entry -> entry);
+    }
+
+    /**
+     * Returns the keys of the hash table, iterated the same way as the entries.
+     *
+     * @return the keys of the hash table.
+     */
+    public Iterable<K> keys() {
+        return () -> new EntryIterator<>(table, entry -> entry.key);
+    }
+
+    /**
+     * Returns the values of the hash table, iterated the same way as the entries.
+     *
+     * @return the values of the hash table.
+     */
+    public Iterable<V> values() {
+        return () -> new EntryIterator<>(table, entry -> entry.value);
+    }
+
+    /**
+     * Returns the spliterator of the key-value pairs, which splits the table into the halves of its places.
+     *
+     * @return the spliterator of the key-value pairs.
+     */
+    public Spliterator<java.util.Map.Entry<K, V>> spliterator() {
+        return new EntrySpliterator<>(table, 0, table.length, size);
+    }
+
+    /**
+     * Returns the sequential stream of the key-value pairs.
+     *
+     * @return the stream of the key-value pairs.
+     */
+    public Stream<java.util.Map.Entry<K, V>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns the parallel stream of the key-value pairs, the ranges of places are processed by different threads.
+     *
+     * @return the parallel stream of the key-value pairs.
+     */
+    public Stream<java.util.Map.Entry<K, V>> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
     }
 
     @Override
     public String toString() {
         return Arrays.stream(table)
-                .filter(entry -> entry != null && !DELETED.equals(entry))
+                .filter(entry -> entry != null && entry != DELETED)
                 .map(Entry::toString)
                 .collect(Collectors.joining(System.lineSeparator()));
     }
 
     private void rehash() {
-        HashMapOa<K, V> newMap = new HashMapOa<>(table.length * 2, loadFactor, ht, oaType);
-        Arrays.stream(table).filter(Objects::nonNull).forEach(kvEntry -> newMap.put(kvEntry.key, kvEntry.value));
+        rehash(table.length * 2);
+    }
+
+    /**
+     * Grows the table at once, so the expected number of key-value pairs fits without further rehashes.
+     *
+     * @param expectedSize expected number of key-value pairs.
+     */
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        int capacity = table.length;
+        while (expectedSize > capacity * loadFactor && capacity <= Integer.MAX_VALUE / 2) {
+            capacity *= 2;
+        }
+        if (capacity > table.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * Moves the entries into the table of the given capacity, the DELETED places are dropped.
+     * The hash codes kept in the entries are reused.
+     */
+    private void rehash(int capacity) {
+        HashMapOa<K, V> newMap = new HashMapOa<>(capacity, loadFactor, ht, oaType);
+        Arrays.stream(table)
+                .filter(entry -> entry != null && entry != DELETED)
+                .forEach(kvEntry -> newMap.put(kvEntry.hash, kvEntry.key, kvEntry.value));
         table = newMap.table;
         numberOfOccupied = newMap.numberOfOccupied;
+        tombstonesCounter = 0;
         lastUpdated = newMap.lastUpdated;
         rehashesCounter++;
+        modCount++;
+    }
+
+    /**
+     * Adds the keys paired with the values of the same index in parallel, using the common pool.
+     *
+     * @param keys keys.
+     * @param values values.
+     */
+    public void putAllParallel(List<? extends K> keys, List<? extends V> values) {
+        putAllParallel(keys, values, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Adds the keys paired with the values of the same index in parallel. The table is sized once,
+     * the keys are hashed by the workers of the pool, then each worker places the entries of its own
+     * range of the table. An entry which probe sequence leaves the range is added by the calling thread
+     * afterwards, as well as all the entries of the Robin Hood table, which shifts entries across the ranges.
+     *
+     * @param keys keys.
+     * @param values values.
+     * @param pool the pool of the workers.
+     */
+    @SuppressWarnings("unchecked")
+    public void putAllParallel(List<? extends K> keys, List<? extends V> values, ForkJoinPool pool) {
+        if (keys.size() < ParallelBulkLoad.MIN_PARALLEL_SIZE || oaType == OpenAddressingType.ROBIN_HOOD) {
+            putAll(keys, values);
+            return;
+        }
+
+        ensureCapacity(size + keys.size());
+        ParallelBulkLoad load = new ParallelBulkLoad(keys, values, table.length, ht, pool);
+        ParallelBulkLoad.RangeFill[] fills = load.fillRanges((fill, range) -> fillRange(load, range, fill));
+        for (ParallelBulkLoad.RangeFill fill : fills) {
+            size += fill.inserted;
+            numberOfOccupied += fill.inserted;
+            modCount++;
+            tombstonesCounter -= fill.reusedDeleted;
+            if (fill.lastUpdated != -1) {
+                lastUpdated = fill.lastUpdated;
+            }
+        }
+        if (bloomFilter != null) {
+            for (int hash : load.hashes) {
+                addToFilter(hash);
+            }
+        }
+        for (ParallelBulkLoad.RangeFill fill : fills) {
+            for (int i : fill.deferred) {
+                put(load.hashes[i], (K) load.keys[i], (V) load.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds the entries of the range, the worker probes the places of the range only.
+     * The probing is the same as in findPosition.
+     */
+    @SuppressWarnings("unchecked")
+    private void fillRange(ParallelBulkLoad load, int range, ParallelBulkLoad.RangeFill fill) {
+        int start = load.rangeStart(range);
+        int end = load.rangeStart(range + 1);
+        entries:
+        for (int p = load.bounds[range]; p < load.bounds[range + 1]; p++) {
+            int i = load.order[p];
+            int index = load.indices[i];
+            int hash = load.hashes[i];
+            K key = (K) load.keys[i];
+
+            int position = index;
+            int distance = 0;
+            int firstDeleted = -1;
+            int firstDeletedDistance = 0;
+            while (true) {
+                if (position < start || position >= end || distance == table.length) {
+                    fill.deferred.add(i);
+                    continue entries;
+                }
+                if (table[position] == null) {
+                    break;
+                }
+                if (table[position] == DELETED) {
+                    if (firstDeleted == -1) {
+                        firstDeleted = position;
+                        firstDeletedDistance = distance;
+                    }
+                } else if (table[position].hash == hash && table[position].key.equals(key)) {
+                    table[position].value = (V) load.values[i];
+                    fill.lastUpdated = position;
+                    continue entries;
+                }
+                position = calculatePosition(index, distance, hash);
+                distance++;
+            }
+            if (firstDeleted != -1) {
+                position = firstDeleted;
+                distance = firstDeletedDistance;
+                fill.reusedDeleted++;
+            }
+            table[position] = new Entry<>(hash, key, (V) load.values[i], distance);
+            fill.inserted++;
+            fill.lastUpdated = position;
+        }
+    }
+
+    /**
+     * Robin Hood insertion. Linear probing is used, but an entry standing closer to
+     * its home slot than the inserted one gives its place away and continues probing.
+     * Probe distances stay even and an unsuccessful search can stop early.
+     */
+    private V putRobinHood(int hash, K key, V value) {
+        int position = HashManager.hash(hash, table.length, ht);
+        int distance = 0;
+        while (table[position] != null && distance <= table[position].probeDistance) {
+            if (table[position].hash == hash && table[position].key.equals(key)) {
+                table[position].value = value;
+                lastUpdated = position;
+                return value;
+            }
+            position = (position + 1) % table.length;
+            distance++;
+        }
+
+        if (size == table.length) {
+            rehash();
+            return putRobinHood(hash, key, value);
+        }
+
+        lastUpdated = position;
+        Entry<K, V> entry = new Entry<>(hash, key, value, distance);
+        while (entry != null) {
+            Entry<K, V> displaced = table[position];
+            if (displaced == null || displaced.probeDistance < entry.probeDistance) {
+                table[position] = entry;
+                entry = displaced;
+            }
+            position = (position + 1) % table.length;
+            if (entry != null) {
+                entry.probeDistance++;
+            }
+        }
+        size++;
+        modCount++;
+        addToFilter(hash);
+
+        if (size > table.length * loadFactor) {
+            rehash();
+        } else {
+            numberOfOccupied++;
+        }
+
+        return value;
+    }
+
+    /**
+     * Robin Hood lookup. The search stops as soon as the probed entry stands closer
+     * to its home slot than the key would, since the key could not have been placed further.
+     *
+     * @return position of the key, or -1 if the key is absent
+     */
+    private int findPositionRobinHood(int hash, K key) {
+        int position = HashManager.hash(hash, table.length, ht);
+        for (int distance = 0; table[position] != null && distance <= table[position].probeDistance; distance++) {
+            if (table[position].hash == hash && table[position].key.equals(key)) {
+                return position;
+            }
+            position = (position + 1) % table.length;
+        }
+        return -1;
+    }
+
+    /**
+     * Robin Hood removal with backward shift: the following entries which are not
+     * at their home slot are moved one place back, so no DELETED marker is left.
+     */
+    private V removeRobinHood(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in remove(K key)");
+        }
+
+        int position = findPositionRobinHood(key.hashCode(), key);
+        if (position == -1) {
+            return null;
+        }
+        return removeRobinHoodAt(position);
+    }
+
+    private V removeRobinHoodAt(int position) {
+        V value = table[position].value;
+        int next = (position + 1) % table.length;
+        while (table[next] != null && table[next].probeDistance > 0) {
+            table[position] = table[next];
+            table[position].probeDistance--;
+            position = next;
+            next = (next + 1) % table.length;
+        }
+        table[position] = null;
+        size--;
+        modCount++;
+        numberOfOccupied--;
+        lastUpdated = position;
+        shrinkIfSparse();
+        return value;
     }
 
-    private int findPosition(K key, boolean stopAtDeleted) {
-        int index = HashManager.hash(key.hashCode(), table.length, ht);
+    /**
+     * Searches the key along its probe sequence.
+     *
+     * @param stopAtDeleted if the key is absent, return the first DELETED place met instead of the empty one
+     * @return position of the key, the place to insert it, or -1 if the probe sequence has no free place
+     */
+    private int findPosition(int hash, K key, boolean stopAtDeleted) {
+        int index = HashManager.hash(hash, table.length, ht);
 
         int position = index;
+        int firstDeleted = -1;
+        int firstDeletedDistance = 0;
         for (int i = 0; i < table.length; i++) {
+            lastProbeDistance = i;
             if (table[position] == null) {
-                return position;
+                break;
             }
-            if (DELETED.equals(table[position]) && stopAtDeleted) {
-                return position;
-            }
-            if (!DELETED.equals(table[position]) && table[position].key.equals(key)) {
+            if (table[position] == DELETED) {
+                if (firstDeleted == -1) {
+                    firstDeleted = position;
+                    firstDeletedDistance = i;
+                }
+            } else if (table[position].hash == hash && table[position].key.equals(key)) {
                 return position;
             }
 
-            position = calculatePosition(index, i, key);
+            position = calculatePosition(index, i, hash);
         }
-        return -1;
+        if (stopAtDeleted && firstDeleted != -1) {
+            lastProbeDistance = firstDeletedDistance;
+            return firstDeleted;
+        }
+        return table[position] == null ? position : -1;
     }
 
-    private int calculatePosition(int index, int i, K key) {
+    private int calculatePosition(int index, int i, int hash) {
         switch (oaType) {
             case LINEAR:
                 return (index + i + 1) % table.length;
             case QUADRATIC:
                 return (index + (i + 1) * (i + 1)) % table.length;
             case DOUBLE_HASHING:
-                return (index + i * (7 - Math.abs(key.hashCode()) % 7)) % table.length;
+                return (index + (i + 1) * (7 - Math.abs(hash) % 7)) % table.length;
         }
         return index;
     }
@@ -225,6 +896,16 @@ public class HashMapOa<K, V> implements EvaluableMap<K, V> {
         return rehashesCounter;
     }
 
+    /**
+     * Returns the number of rehashes into a smaller table.
+     *
+     * @return number of shrinks.
+     */
+    @Override
+    public int getShrinksCounter() {
+        return shrinksCounter;
+    }
+
     /**
      * Returns the capacity of hash table.
      *
@@ -255,6 +936,64 @@ public class HashMapOa<K, V> implements EvaluableMap<K, V> {
         return numberOfOccupied;
     }
 
+    /**
+     * Returns the average number of probes beyond the home slot over the stored entries.
+     *
+     * @return average probe distance.
+     */
+    @Override
+    public double getAverageProbeDistance() {
+        return Arrays.stream(table)
+                .filter(entry -> entry != null && entry != DELETED)
+                .mapToInt(entry -> entry.probeDistance)
+                .average()
+                .orElse(0);
+    }
+
+    /**
+     * Returns the maximum number of probes beyond the home slot over the stored entries.
+     *
+     * @return maximum probe distance.
+     */
+    @Override
+    public int getMaxProbeDistance() {
+        return Arrays.stream(table)
+                .filter(entry -> entry != null && entry != DELETED)
+                .mapToInt(entry -> entry.probeDistance)
+                .max()
+                .orElse(0);
+    }
+
+    /**
+     * Returns the number of lookups the Bloom filter answered without probing the table.
+     *
+     * @return number of filter negatives, -1 if the filter is not enabled.
+     */
+    @Override
+    public int getFilterNegativesCounter() {
+        return bloomFilter == null ? -1 : filterNegativesCounter;
+    }
+
+    /**
+     * Returns the number of lookups of absent keys the Bloom filter let through to the table.
+     *
+     * @return number of filter false positives, -1 if the filter is not enabled.
+     */
+    @Override
+    public int getFilterFalsePositivesCounter() {
+        return bloomFilter == null ? -1 : filterFalsePositivesCounter;
+    }
+
+    /**
+     * Returns the number of places marked as DELETED.
+     *
+     * @return number of DELETED places.
+     */
+    @Override
+    public int getTombstonesCounter() {
+        return tombstonesCounter;
+    }
+
     public boolean replace(K key, V oldValue, V newValue) {
         throw new UnsupportedOperationException("Students must implement the method replace(K key,  V oldValue, V newValue)");
     }
@@ -263,21 +1002,173 @@ public class HashMapOa<K, V> implements EvaluableMap<K, V> {
         throw new UnsupportedOperationException("Students must implement the method containsValue(Object value)");
     }
 
-    protected static class Entry<K, V> {
+    /**
+     * Iterates the places of the table, the empty and the DELETED places (which have no key) are skipped.
+     */
+    private static class EntryIterator<K, V, T> implements Iterator<T> {
+
+        private final Entry<K, V>[] table;
+        private final Function<Entry<K, V>, T> mapper;
+        // the place of the next entry, table.length if there are no more
+        private int index = -1;
+
+        private EntryIterator(Entry<K, V>[] table, Function<Entry<K, V>, T> mapper) {
+            this.table = table;
+            this.mapper = mapper;
+            advance();
+        }
+
+        private void advance() {
+            do {
+                index++;
+            } while (index < table.length && (table[index] == null || table[index].key == null));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < table.length;
+        }
+
+        @Override
+        public T next() {
+            if (index >= table.length) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = table[index];
+            advance();
+            return mapper.apply(entry);
+        }
+    }
 
+    /**
+     * Visits the places index .. fence - 1 of the table, the split gives away the first half of them.
+     */
+    private static class EntrySpliterator<K, V> implements Spliterator<java.util.Map.Entry<K, V>> {
+
+        private final Entry<K, V>[] table;
+        // the next place to visit
+        private int index;
+        // one past the last place to visit
+        private final int fence;
+        // the estimated number of the entries left, exact until the first split
+        private long estimatedSize;
+        private boolean sized = true;
+
+        private EntrySpliterator(Entry<K, V>[] table, int index, int fence, long estimatedSize) {
+            this.table = table;
+            this.index = index;
+            this.fence = fence;
+            this.estimatedSize = estimatedSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super java.util.Map.Entry<K, V>> action) {
+            while (index < fence) {
+                Entry<K, V> entry = table[index++];
+                if (entry != null && entry.key != null) {
+                    action.accept(entry);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super java.util.Map.Entry<K, V>> action) {
+            for (; index < fence; index++) {
+                Entry<K, V> entry = table[index];
+                if (entry != null && entry.key != null) {
+                    action.accept(entry);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<java.util.Map.Entry<K, V>> trySplit() {
+            int middle = (index + fence) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            sized = false;
+            estimatedSize >>>= 1;
+            EntrySpliterator<K, V> prefix = new EntrySpliterator<>(table, index, middle, estimatedSize);
+            prefix.sized = false;
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimatedSize;
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL | (sized ? SIZED : 0);
+        }
+    }
+
+    protected static class Entry<K, V> implements java.util.Map.Entry<K, V> {
+
+        // Hash code of the key, compared before calling equals and reused while rehashing
+        protected final int hash;
         // Key
         protected K key;
         // Value
         protected V value;
+        // The number of probes beyond the home slot made to place the entry
+        protected int probeDistance;
 
         protected Entry() {
+            this.hash = 0;
         }
 
-        protected Entry(K key, V value) {
+        protected Entry(int hash, K key, V value) {
+            this.hash = hash;
             this.key = key;
             this.value = value;
         }
 
+        protected Entry(int hash, K key, V value, int probeDistance) {
+            this(hash, key, value);
+            this.probeDistance = probeDistance;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * The values are changed through the map only, like in the chained HashMap.
+         */
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException("Entries of the map are read-only");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (key == null || !(o instanceof java.util.Map.Entry)) {
+                return false;
+            }
+            java.util.Map.Entry<?, ?> entry = (java.util.Map.Entry<?, ?>) o;
+            return key.equals(entry.getKey()) && value.equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key == null ? 0 : hash ^ value.hashCode();
+        }
+
         @Override
         public String toString() {
             return key + "=" + value;
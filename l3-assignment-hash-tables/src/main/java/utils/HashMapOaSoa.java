@@ -0,0 +1,465 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * The implementation of hash table based on open addressing with the structure of arrays layout.
+ * Instead of an array of Entry objects the keys, the values and the hash codes of the keys are kept
+ * in three parallel arrays, so no object is allocated per entry and a probe compares the hash codes
+ * stored next to each other in memory before touching a key.
+ * An empty slot is marked by null in the keys array, a removed slot by the DELETED sentinel.
+ * Linear probing removes with backward shift, the other probing types leave DELETED slots,
+ * which are cleaned up by the rehash of the same size.
+ *
+ * @param <K> key type of hash table
+ * @param <V> value type of hash table
+ */
+public class HashMapOaSoa<K, V> implements EvaluableMap<K, V> {
+
+    // Sentinel of the removed slot in the keys array
+    private static final Object DELETED = new Object();
+
+    // Keys of the hash table
+    protected Object[] keys;
+    // Values of the hash table
+    protected Object[] values;
+    // Hash codes of the keys
+    protected int[] hashes;
+    // The amount of key-value pairs
+    protected int size = 0;
+    // Load factor
+    protected float loadFactor;
+    // Hash function
+    protected HashManager.HashType ht;
+    // The table is cleaned up by the rehash of the same size when DELETED places exceed this part of it
+    protected float maxTombstoneFactor = HashMapOa.DEFAULT_MAX_TOMBSTONE_FACTOR;
+    //--------------------------------------------------------------------------
+    //  Parameters of hash table
+    //--------------------------------------------------------------------------
+    // The amount of rehashes
+    protected int rehashesCounter = 0;
+    // The index of last updated element
+    protected int lastUpdated = 0;
+    // The number of occupied places in the hash table
+    protected int numberOfOccupied = 0;
+    // The number of places marked as DELETED
+    protected int tombstonesCounter = 0;
+
+    private final HashMapOa.OpenAddressingType oaType;
+
+    public HashMapOaSoa() {
+        this(HashMapOa.DEFAULT_HASH_TYPE);
+    }
+
+    public HashMapOaSoa(HashManager.HashType ht) {
+        this(HashMapOa.DEFAULT_INITIAL_CAPACITY, ht);
+    }
+
+    public HashMapOaSoa(int initialCapacity, HashManager.HashType ht) {
+        this(initialCapacity, HashMapOa.DEFAULT_LOAD_FACTOR, ht, HashMapOa.DEFAULT_OPEN_ADDRESSING_TYPE);
+    }
+
+    public HashMapOaSoa(float loadFactor, HashManager.HashType ht) {
+        this(HashMapOa.DEFAULT_INITIAL_CAPACITY, loadFactor, ht, HashMapOa.DEFAULT_OPEN_ADDRESSING_TYPE);
+    }
+
+    public HashMapOaSoa(int initialCapacity, float loadFactor, HashManager.HashType ht, HashMapOa.OpenAddressingType oaType) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+
+        if ((loadFactor <= 0.0) || (loadFactor > 1.0)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+
+        if (oaType == HashMapOa.OpenAddressingType.ROBIN_HOOD) {
+            throw new IllegalArgumentException("Unsupported open addressing type: " + oaType);
+        }
+
+        this.keys = new Object[initialCapacity];
+        this.values = new Object[initialCapacity];
+        this.hashes = new int[initialCapacity];
+        this.loadFactor = loadFactor;
+        this.ht = ht;
+        this.oaType = oaType;
+    }
+
+    public void setMaxTombstoneFactor(float maxTombstoneFactor) {
+        if ((maxTombstoneFactor <= 0.0) || (maxTombstoneFactor > 1.0)) {
+            throw new IllegalArgumentException("Illegal tombstone factor: " + maxTombstoneFactor);
+        }
+
+        this.maxTombstoneFactor = maxTombstoneFactor;
+    }
+
+    /**
+     * Checks if the hash table is empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of key-value pairs in the hash table.
+     *
+     * @return the number of key-value pairs.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Clears hash table.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+        lastUpdated = 0;
+        rehashesCounter = 0;
+        numberOfOccupied = 0;
+        tombstonesCounter = 0;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in contains(K key)");
+        }
+
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key or value is null in put(K key, V value)");
+        }
+
+        return put(key.hashCode(), key, value);
+    }
+
+    private V put(int hash, K key, V value) {
+        int position = findPosition(hash, key, true);
+        if (position == -1) {
+            rehash();
+            return put(hash, key, value);
+        }
+
+        if (keys[position] == null || keys[position] == DELETED) {
+            if (keys[position] == DELETED) {
+                tombstonesCounter--;
+            }
+            keys[position] = key;
+            values[position] = value;
+            hashes[position] = hash;
+            size++;
+
+            if (size > keys.length * loadFactor) {
+                rehash();
+            } else if (size + tombstonesCounter > keys.length * loadFactor) {
+                // The DELETED places would leave no empty place to end the probing of the absent keys
+                rehash(keys.length);
+            } else {
+                numberOfOccupied++;
+                lastUpdated = position;
+            }
+        } else {
+            values[position] = value;
+            lastUpdated = position;
+        }
+
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in get(K key)");
+        }
+
+        int position = findPosition(key.hashCode(), key, false);
+        if (position != -1 && keys[position] != null) {
+            return (V) values[position];
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes the pair from the hash table. With linear probing the following entries of the cluster
+     * are shifted back into the hole, with other probing types the place is marked as DELETED.
+     *
+     * @param key
+     * @return value associated with key or null, if no value is associated with the key.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in remove(K key)");
+        }
+
+        int position = findPosition(key.hashCode(), key, false);
+        if (position == -1 || keys[position] == null) {
+            return null;
+        }
+
+        V value = (V) values[position];
+        size--;
+        numberOfOccupied--;
+        lastUpdated = position;
+        if (oaType == HashMapOa.OpenAddressingType.LINEAR) {
+            shiftBackward(position);
+        } else {
+            keys[position] = DELETED;
+            values[position] = null;
+            tombstonesCounter++;
+            if (tombstonesCounter > keys.length * maxTombstoneFactor) {
+                rehash(keys.length);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Backward shift deletion for linear probing. An entry of the cluster may fill the hole
+     * if its home slot does not lie between the hole and the entry.
+     */
+    private void shiftBackward(int hole) {
+        keys[hole] = null;
+        values[hole] = null;
+        for (int next = (hole + 1) % keys.length; keys[next] != null; next = (next + 1) % keys.length) {
+            int shift = (next - hole + keys.length) % keys.length;
+            int home = HashManager.hash(hashes[next], keys.length, ht);
+            if ((next - home + keys.length) % keys.length >= shift) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hashes[hole] = hashes[next];
+                keys[next] = null;
+                values[next] = null;
+                hole = next;
+            }
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || newValue == null) {
+            return false;
+        }
+
+        int position = findPosition(key.hashCode(), key, false);
+        if (position == -1 || keys[position] == null || !values[position].equals(oldValue)) {
+            return false;
+        }
+
+        values[position] = newValue;
+        lastUpdated = position;
+        return true;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return value != null && Arrays.asList(values).contains(value);
+    }
+
+    /**
+     * Performs the action for each key-value pair of the hash table.
+     *
+     * @param action
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && keys[i] != DELETED) {
+                action.accept((K) keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && keys[i] != DELETED) {
+                if (result.length() > 0) {
+                    result.append(System.lineSeparator());
+                }
+                result.append(keys[i]).append("=").append(values[i]);
+            }
+        }
+        return result.toString();
+    }
+
+    private void rehash() {
+        rehash(keys.length * 2);
+    }
+
+    /**
+     * Moves the entries into the table of the given capacity, the DELETED places are dropped.
+     * The stored hash codes are reused.
+     */
+    @SuppressWarnings("unchecked")
+    private void rehash(int capacity) {
+        HashMapOaSoa<K, V> newMap = new HashMapOaSoa<>(capacity, loadFactor, ht, oaType);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && keys[i] != DELETED) {
+                newMap.put(hashes[i], (K) keys[i], (V) values[i]);
+            }
+        }
+        keys = newMap.keys;
+        values = newMap.values;
+        hashes = newMap.hashes;
+        numberOfOccupied = newMap.numberOfOccupied;
+        tombstonesCounter = 0;
+        lastUpdated = newMap.lastUpdated;
+        rehashesCounter++;
+    }
+
+    /**
+     * Searches the key along its probe sequence. The equals is called only for the slots with the same hash code.
+     *
+     * @param stopAtDeleted if the key is absent, return the first DELETED place met instead of the empty one
+     * @return position of the key, the place to insert it, or -1 if the probe sequence has no free place
+     */
+    private int findPosition(int hash, K key, boolean stopAtDeleted) {
+        int index = HashManager.hash(hash, keys.length, ht);
+
+        int position = index;
+        int firstDeleted = -1;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[position] == null) {
+                break;
+            }
+            if (keys[position] == DELETED) {
+                if (firstDeleted == -1) {
+                    firstDeleted = position;
+                }
+            } else if (hashes[position] == hash && key.equals(keys[position])) {
+                return position;
+            }
+
+            position = calculatePosition(index, i, hash);
+        }
+        if (stopAtDeleted && firstDeleted != -1) {
+            return firstDeleted;
+        }
+        return keys[position] == null ? position : -1;
+    }
+
+    private int calculatePosition(int index, int i, int hash) {
+        switch (oaType) {
+            case LINEAR:
+                return (index + i + 1) % keys.length;
+            case QUADRATIC:
+                return (index + (i + 1) * (i + 1)) % keys.length;
+            case DOUBLE_HASHING:
+                return (index + (i + 1) * (7 - Math.abs(hash) % 7)) % keys.length;
+        }
+        return index;
+    }
+
+    /**
+     * Replays the probe sequence of the entry in the slot to count the probes beyond its home slot.
+     */
+    private int probeDistance(int position) {
+        int index = HashManager.hash(hashes[position], keys.length, ht);
+        int probe = index;
+        for (int i = 0; i < keys.length; i++) {
+            if (probe == position) {
+                return i;
+            }
+            probe = calculatePosition(index, i, hashes[position]);
+        }
+        return keys.length;
+    }
+
+    /**
+     * Returns the number of rehashes occurred in the hash table.
+     *
+     * @return number of rehashes.
+     */
+    @Override
+    public int getRehashesCounter() {
+        return rehashesCounter;
+    }
+
+    /**
+     * Returns the capacity of hash table.
+     *
+     * @return capacity of hash table.
+     */
+    @Override
+    public int getTableCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the index of last update element of the hash table.
+     *
+     * @return the index of last update element of the hash table.
+     */
+    @Override
+    public int getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * Returns the number of occupied places in the hash table.
+     *
+     * @return the number of occupied places in the hash table.
+     */
+    @Override
+    public int getNumberOfOccupied() {
+        return numberOfOccupied;
+    }
+
+    /**
+     * Returns the number of places marked as DELETED.
+     *
+     * @return number of DELETED places.
+     */
+    @Override
+    public int getTombstonesCounter() {
+        return tombstonesCounter;
+    }
+
+    /**
+     * Returns the average number of probes beyond the home slot over the stored entries.
+     *
+     * @return average probe distance.
+     */
+    @Override
+    public double getAverageProbeDistance() {
+        long sum = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && keys[i] != DELETED) {
+                sum += probeDistance(i);
+            }
+        }
+        return size == 0 ? 0 : (double) sum / size;
+    }
+
+    /**
+     * Returns the maximum number of probes beyond the home slot over the stored entries.
+     *
+     * @return maximum probe distance.
+     */
+    @Override
+    public int getMaxProbeDistance() {
+        int max = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && keys[i] != DELETED) {
+                max = Math.max(max, probeDistance(i));
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,476 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The implementation of hash table based on hopscotch hashing.
+ * Every key is kept within the neighbourhood of NEIGHBOURHOOD_SIZE slots starting at its home slot,
+ * and each home slot keeps a hop-info bitmap of the neighbourhood slots holding its keys.
+ * A lookup therefore inspects at most NEIGHBOURHOOD_SIZE slots. When the free slot found on insertion
+ * lies outside the neighbourhood, entries are displaced toward their home slots to bring it closer;
+ * the table is resized only when no such displacement is possible.
+ * More than NEIGHBOURHOOD_SIZE keys may share a home slot at every table size (e.g. equal hash codes),
+ * so the table grows at most once per insertion and only if its slots are not sparse; the key which still
+ * does not fit is kept in the overflow chain of its home slot, searched after the neighbourhood.
+ *
+ * @param <K> key type of hash table
+ * @param <V> value type of hash table
+ */
+public class HopscotchHashMap<K, V> implements EvaluableMap<K, V> {
+
+    public static final int DEFAULT_INITIAL_CAPACITY = 8;
+    public static final HashManager.HashType DEFAULT_HASH_TYPE = HashManager.HashType.DIVISION;
+    // The size of neighbourhood, i.e. the number of bits in the hop-info bitmap
+    public static final int NEIGHBOURHOOD_SIZE = Integer.SIZE;
+    // The failed insertion grows the table only if its occupied slots fill more than this part of it
+    public static final float MIN_GROW_LOAD = 0.5f;
+
+    // Hash table
+    protected Entry<K, V>[] table;
+    // Hop-info bitmaps: bit i of hopInfo[j] is set if slot j + i holds a key whose home slot is j
+    protected int[] hopInfo;
+    // Overflow chains of the home slots, null until a key does not fit into its neighbourhood
+    protected Entry<K, V>[] overflow;
+    // The amount of key-value pairs
+    protected int size = 0;
+    // Hash function
+    protected HashManager.HashType ht;
+    //--------------------------------------------------------------------------
+    //  Parameters of hash table
+    //--------------------------------------------------------------------------
+    // The amount of rehashes
+    protected int rehashesCounter = 0;
+    // The index of last updated element
+    protected int lastUpdated = 0;
+    // The number of key-value pairs in the overflow chains
+    protected int overflowCounter = 0;
+
+    public HopscotchHashMap() {
+        this(DEFAULT_HASH_TYPE);
+    }
+
+    public HopscotchHashMap(HashManager.HashType ht) {
+        this(DEFAULT_INITIAL_CAPACITY, ht);
+    }
+
+    public HopscotchHashMap(int initialCapacity, HashManager.HashType ht) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+
+        this.table = new Entry[initialCapacity];
+        this.hopInfo = new int[initialCapacity];
+        this.ht = ht;
+    }
+
+    /**
+     * Checks if the hash table is empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of key-value pairs in the hash table.
+     *
+     * @return the number of key-value pairs.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Clears hash table.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(table, null);
+        Arrays.fill(hopInfo, 0);
+        overflow = null;
+        size = 0;
+        lastUpdated = 0;
+        rehashesCounter = 0;
+        overflowCounter = 0;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in contains(K key)");
+        }
+
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key or value is null in put(K key, V value)");
+        }
+
+        int home = HashManager.hash(key.hashCode(), table.length, ht);
+        int position = findPosition(key, home);
+        if (position != -1) {
+            table[position].value = value;
+            lastUpdated = position;
+            return value;
+        }
+        Entry<K, V> entry = findInOverflow(key, home);
+        if (entry != null) {
+            entry.value = value;
+            lastUpdated = home;
+            return value;
+        }
+
+        insert(key, value, true);
+        return value;
+    }
+
+    /**
+     * Adds the absent key. The table may grow once if the free slot can not be brought into the neighbourhood,
+     * the key which still does not fit is added to the overflow chain of its home slot.
+     */
+    private void insert(K key, V value, boolean mayGrow) {
+        int home = HashManager.hash(key.hashCode(), table.length, ht);
+        int position = findFreePosition(home);
+        if (position == -1 && mayGrow && size - overflowCounter > table.length * MIN_GROW_LOAD) {
+            rehash();
+            home = HashManager.hash(key.hashCode(), table.length, ht);
+            position = findFreePosition(home);
+        }
+
+        size++;
+        if (position == -1) {
+            if (overflow == null) {
+                overflow = new Entry[table.length];
+            }
+            Entry<K, V> entry = new Entry<>(key, value);
+            entry.next = overflow[home];
+            overflow[home] = entry;
+            overflowCounter++;
+            lastUpdated = home;
+            return;
+        }
+        table[position] = new Entry<>(key, value);
+        hopInfo[home] |= 1 << distance(home, position);
+        lastUpdated = position;
+    }
+
+    @Override
+    public V get(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in get(K key)");
+        }
+
+        int home = HashManager.hash(key.hashCode(), table.length, ht);
+        int position = findPosition(key, home);
+        if (position != -1) {
+            return table[position].value;
+        }
+        Entry<K, V> entry = findInOverflow(key, home);
+        return entry == null ? null : entry.value;
+    }
+
+    @Override
+    public V remove(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in remove(K key)");
+        }
+
+        int home = HashManager.hash(key.hashCode(), table.length, ht);
+        int position = findPosition(key, home);
+        if (position == -1) {
+            return removeFromOverflow(key, home);
+        }
+
+        V value = table[position].value;
+        size--;
+        lastUpdated = position;
+        if (overflow != null && overflow[home] != null) {
+            // The freed slot is within the neighbourhood of the home slot, so an overflowed key of it moves in
+            table[position] = overflow[home];
+            overflow[home] = overflow[home].next;
+            table[position].next = null;
+            overflowCounter--;
+        } else {
+            table[position] = null;
+            hopInfo[home] &= ~(1 << distance(home, position));
+        }
+        return value;
+    }
+
+    private V removeFromOverflow(K key, int home) {
+        if (overflow == null) {
+            return null;
+        }
+        for (Entry<K, V> previous = null, entry = overflow[home]; entry != null; previous = entry, entry = entry.next) {
+            if (entry.key.equals(key)) {
+                if (previous == null) {
+                    overflow[home] = entry.next;
+                } else {
+                    previous.next = entry.next;
+                }
+                size--;
+                overflowCounter--;
+                lastUpdated = home;
+                return entry.value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || newValue == null) {
+            return false;
+        }
+
+        int home = HashManager.hash(key.hashCode(), table.length, ht);
+        int position = findPosition(key, home);
+        Entry<K, V> entry = position != -1 ? table[position] : findInOverflow(key, home);
+        if (entry == null || !Objects.equals(entry.value, oldValue)) {
+            return false;
+        }
+
+        entry.value = newValue;
+        lastUpdated = position != -1 ? position : home;
+        return true;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return value != null && entries().anyMatch(entry -> value.equals(entry.value));
+    }
+
+    /**
+     * Performs the action for each key-value pair of the hash table.
+     *
+     * @param action
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        entries().forEach(entry -> action.accept(entry.key, entry.value));
+    }
+
+    @Override
+    public String toString() {
+        return entries()
+                .map(Entry::toString)
+                .collect(Collectors.joining(System.lineSeparator()));
+    }
+
+    /**
+     * Returns the entries of the table followed by the entries of the overflow chains.
+     */
+    private Stream<Entry<K, V>> entries() {
+        Stream<Entry<K, V>> entries = Arrays.stream(table).filter(Objects::nonNull);
+        if (overflowCounter == 0) {
+            return entries;
+        }
+        return Stream.concat(entries, Arrays.stream(overflow)
+                .flatMap(chain -> Stream.iterate(chain, Objects::nonNull, entry -> entry.next)));
+    }
+
+    /**
+     * Moves the key-value pairs into the table of double size. The pairs are inserted without growing
+     * the new table, so the rehash never nests; the overflowed keys get another chance to fit.
+     */
+    private void rehash() {
+        HopscotchHashMap<K, V> newMap = new HopscotchHashMap<>(table.length * 2, ht);
+        entries().forEach(entry -> newMap.insert(entry.key, entry.value, false));
+        table = newMap.table;
+        hopInfo = newMap.hopInfo;
+        overflow = newMap.overflow;
+        overflowCounter = newMap.overflowCounter;
+        lastUpdated = newMap.lastUpdated;
+        rehashesCounter++;
+    }
+
+    /**
+     * Searches the key within the neighbourhood of its home slot.
+     *
+     * @return position of the key, or -1 if the key is absent
+     */
+    private int findPosition(K key, int home) {
+        for (int bits = hopInfo[home]; bits != 0; bits &= bits - 1) {
+            int position = (home + Integer.numberOfTrailingZeros(bits)) % table.length;
+            if (table[position].key.equals(key)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Searches the key in the overflow chain of its home slot.
+     *
+     * @return entry of the key, or null if the key is absent
+     */
+    private Entry<K, V> findInOverflow(K key, int home) {
+        if (overflow == null) {
+            return null;
+        }
+        for (Entry<K, V> entry = overflow[home]; entry != null; entry = entry.next) {
+            if (entry.key.equals(key)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds a free slot by linear probing from the home slot and, while it lies outside
+     * the neighbourhood, hops it closer by displacing entries toward their own home slots.
+     *
+     * @return free position within the neighbourhood of home, or -1 if the table has to be resized
+     */
+    private int findFreePosition(int home) {
+        int free = -1;
+        for (int i = 0; i < table.length; i++) {
+            int position = (home + i) % table.length;
+            if (table[position] == null) {
+                free = position;
+                break;
+            }
+        }
+
+        while (free != -1 && distance(home, free) >= NEIGHBOURHOOD_SIZE) {
+            free = moveFreePositionCloser(free);
+        }
+        return free;
+    }
+
+    /**
+     * Looks for an entry in the slots preceding the free one which may move into the free slot
+     * without leaving its own neighbourhood. The entry closest to its home slot is moved first.
+     *
+     * @return the slot released by the moved entry, or -1 if no entry can be moved
+     */
+    private int moveFreePositionCloser(int free) {
+        for (int offset = NEIGHBOURHOOD_SIZE - 1; offset > 0; offset--) {
+            int candidateHome = (free - offset + table.length) % table.length;
+            int bits = hopInfo[candidateHome] & ((1 << offset) - 1);
+            if (bits != 0) {
+                int moved = Integer.numberOfTrailingZeros(bits);
+                int position = (candidateHome + moved) % table.length;
+                table[free] = table[position];
+                table[position] = null;
+                hopInfo[candidateHome] = (hopInfo[candidateHome] & ~(1 << moved)) | (1 << offset);
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private int distance(int home, int position) {
+        return (position - home + table.length) % table.length;
+    }
+
+    /**
+     * Returns the number of rehashes occurred in the hash table.
+     *
+     * @return number of rehashes.
+     */
+    @Override
+    public int getRehashesCounter() {
+        return rehashesCounter;
+    }
+
+    /**
+     * Returns the capacity of hash table.
+     *
+     * @return capacity of hash table.
+     */
+    @Override
+    public int getTableCapacity() {
+        return table.length;
+    }
+
+    /**
+     * Returns the index of last update element of the hash table.
+     *
+     * @return the index of last update element of the hash table.
+     */
+    @Override
+    public int getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * Returns the number of occupied places in the hash table.
+     *
+     * @return the number of occupied places in the hash table.
+     */
+    @Override
+    public int getNumberOfOccupied() {
+        return size - overflowCounter;
+    }
+
+    /**
+     * Returns the number of key-value pairs kept in the overflow chains, since they did not fit into
+     * the neighbourhoods of their home slots.
+     *
+     * @return number of overflowed pairs.
+     */
+    public int getOverflowCounter() {
+        return overflowCounter;
+    }
+
+    /**
+     * Returns the average distance of the stored entries from their home slots.
+     *
+     * @return average probe distance.
+     */
+    @Override
+    public double getAverageProbeDistance() {
+        long sum = 0;
+        for (int home = 0; home < hopInfo.length; home++) {
+            for (int bits = hopInfo[home]; bits != 0; bits &= bits - 1) {
+                sum += Integer.numberOfTrailingZeros(bits);
+            }
+        }
+        return size == 0 ? 0 : (double) sum / size;
+    }
+
+    /**
+     * Returns the maximum distance of the stored entries from their home slots.
+     *
+     * @return maximum probe distance.
+     */
+    @Override
+    public int getMaxProbeDistance() {
+        int max = 0;
+        for (int bits : hopInfo) {
+            if (bits != 0) {
+                max = Math.max(max, Integer.SIZE - 1 - Integer.numberOfLeadingZeros(bits));
+            }
+        }
+        return max;
+    }
+
+    protected static class Entry<K, V> {
+
+        // Key
+        protected K key;
+        // Value
+        protected V value;
+        // Next entry in the overflow chain of the home slot
+        protected Entry<K, V> next;
+
+        protected Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
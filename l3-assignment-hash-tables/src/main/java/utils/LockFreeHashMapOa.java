@@ -0,0 +1,536 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * The non-blocking implementation of hash table based on open addressing with linear probing.
+ * A key slot is claimed with a compare-and-set and never changes afterwards, the value slot changes
+ * only by compare-and-set. Removal leaves the key and writes the TOMBSTONE into the value slot,
+ * so a later put of the same key revives it; the tombstoned keys are dropped by the next resize.
+ * <p>
+ * Resize is cooperative: the thread which finds the table too crowded attaches a new table to it,
+ * and every operation meeting the attached table copies a chunk of slots before going on.
+ * A slot being copied holds its value boxed in Prime, so no writer changes it in the old table,
+ * and a copied slot holds MOVED or MOVED_EMPTY, which send the operations to the new table.
+ * The map switches to the new table when all the slots of the old one are copied.
+ *
+ * @param <K> key type of hash table
+ * @param <V> value type of hash table
+ */
+public class LockFreeHashMapOa<K, V> implements EvaluableMap<K, V> {
+
+    public static final int DEFAULT_INITIAL_CAPACITY = 16;
+    public static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    public static final HashManager.HashType DEFAULT_HASH_TYPE = HashManager.HashType.DIVISION;
+    // the amount of slots copied by a helping thread at once
+    protected static final int COPY_CHUNK = 64;
+
+    // the key of an empty slot sealed by the resize
+    private static final Object MOVED_KEY = new Object();
+    // the value of a removed key
+    private static final Object TOMBSTONE = new Object();
+    // the value of a slot copied to the new table
+    private static final Object MOVED = new Object();
+    // the value of a slot sealed by the resize before any value was written to it
+    private static final Object MOVED_EMPTY = new Object();
+
+    // the modes of putVal
+    private static final int PUT = 0;
+    private static final int REMOVE = 1;
+    private static final int REPLACE = 2;
+    private static final int COPY = 3;
+
+    // the current table
+    protected final AtomicReference<Table> table;
+    // the amount of key-value pairs
+    protected final LongAdder size = new LongAdder();
+    // load factor
+    protected final float loadFactor;
+    // hash function
+    protected final HashManager.HashType ht;
+    //--------------------------------------------------------------------------
+    //  Parameters of a hash table
+    //--------------------------------------------------------------------------
+    // the amount of rehashes
+    protected final AtomicInteger rehashesCounter = new AtomicInteger();
+    // Index of the last placed key-value pair in the hash table
+    protected volatile int lastUpdated = 0;
+
+    public LockFreeHashMapOa() {
+        this(DEFAULT_HASH_TYPE);
+    }
+
+    public LockFreeHashMapOa(HashManager.HashType ht) {
+        this(DEFAULT_INITIAL_CAPACITY, ht);
+    }
+
+    public LockFreeHashMapOa(int initialCapacity, HashManager.HashType ht) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR, ht);
+    }
+
+    public LockFreeHashMapOa(int initialCapacity, float loadFactor, HashManager.HashType ht) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+
+        if ((loadFactor <= 0.0) || (loadFactor > 1.0)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+
+        this.table = new AtomicReference<>(new Table(initialCapacity, loadFactor));
+        this.loadFactor = loadFactor;
+        this.ht = ht;
+    }
+
+    /**
+     * Checks if the table hash is empty.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of key-value pairs in the hash table. The result may miss the concurrent updates.
+     *
+     * @return the number of key-value pairs.
+     */
+    @Override
+    public int size() {
+        return size.intValue();
+    }
+
+    /**
+     * Clears hash table. The operations running at the same time may leave their updates in the old table.
+     */
+    @Override
+    public void clear() {
+        table.set(new Table(table.get().length(), loadFactor));
+        size.reset();
+        rehashesCounter.set(0);
+        lastUpdated = 0;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in contains(K key)");
+        }
+
+        return get(key) != null;
+    }
+
+    /**
+     * Adds the new key-value pair to the hash table.
+     *
+     * @param key
+     * @param value
+     * @return added value.
+     */
+    @Override
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key or value is null in put(K key, V value)");
+        }
+
+        putVal(table.get(), key, key.hashCode(), value, PUT, null);
+        return value;
+    }
+
+    /**
+     * Returns the value associated with the key. Reads do not write anything unless they meet a resize.
+     *
+     * @param key
+     * @return the value associated with the key.
+     */
+    @Override
+    public V get(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in get(K key)");
+        }
+
+        return getVal(table.get(), key, key.hashCode());
+    }
+
+    /**
+     * Removes the pair from the hash table, leaving the key with the TOMBSTONE value.
+     *
+     * @param key
+     * @return value associated with key or null, if no value is associated with the key.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in remove(K key)");
+        }
+
+        return (V) putVal(table.get(), key, key.hashCode(), TOMBSTONE, REMOVE, null);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null) {
+            return false;
+        }
+
+        return oldValue.equals(putVal(table.get(), key, key.hashCode(), newValue, REPLACE, oldValue));
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        for (Table t = table.get(); t != null; t = t.next.get()) {
+            for (int i = 0; i < t.length(); i++) {
+                if (value.equals(unbox(t.values.get(i)))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Performs the action for each key-value pair of the hash table.
+     * The pairs are read without locking, so the concurrent updates may be missed.
+     *
+     * @param action
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Table t = table.get(); t != null; t = t.next.get()) {
+            for (int i = 0; i < t.length(); i++) {
+                Object value = unbox(t.values.get(i));
+                if (value != null) {
+                    action.accept((K) t.keys.get(i), (V) value);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (Table t = table.get(); t != null; t = t.next.get()) {
+            for (int i = 0; i < t.length(); i++) {
+                Object value = unbox(t.values.get(i));
+                if (value != null) {
+                    result.append(t.keys.get(i)).append("=").append(value).append(System.lineSeparator());
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private V getVal(Table t, K key, int hash) {
+        int length = t.length();
+        int index = HashManager.hash(hash, length, ht);
+        for (int i = 0; i < length; i++) {
+            Object k = t.keys.get(index);
+            if (k == null || k == MOVED_KEY) {
+                // The key is not in this table, but it may have been put to the new one
+                return t.next.get() == null ? null : getVal(helpCopy(t), key, hash);
+            }
+            if (k == key || (k.hashCode() == hash && k.equals(key))) {
+                Object v = t.values.get(index);
+                if (isMoved(v)) {
+                    return getVal(helpCopy(t), key, hash);
+                }
+                return (V) unbox(v);
+            }
+            index = (index + 1) % length;
+        }
+        return t.next.get() == null ? null : getVal(helpCopy(t), key, hash);
+    }
+
+    /**
+     * Writes the value of the key in the given mode: PUT writes it anyway, REMOVE writes the TOMBSTONE
+     * over a present value, REPLACE writes it only over the expected value, and COPY writes it only
+     * into a slot which was never written, so the copied value does not overwrite the newer ones.
+     * A copy which comes late finds the written slot even if it has moved on to a newer table.
+     *
+     * @return the previous value or null, if the key was absent.
+     */
+    private Object putVal(Table t, K key, int hash, Object value, int mode, Object expected) {
+        int length = t.length();
+        int index = HashManager.hash(hash, length, ht);
+        int probes = 0;
+        Object k;
+        while (true) {
+            if (probes == length) {
+                resize(t);
+                return putVal(helpCopy(t), key, hash, value, mode, expected);
+            }
+            k = t.keys.get(index);
+            if (k == null) {
+                if (mode == REMOVE || mode == REPLACE) {
+                    return t.next.get() == null ? null : putVal(helpCopy(t), key, hash, value, mode, expected);
+                }
+                if (t.next.get() != null || t.claimed.get() >= t.threshold) {
+                    // The empty slot is sealed, so nobody puts this key into the old table any more
+                    resize(t);
+                    copySlot(t, index);
+                    continue;
+                }
+                if (t.keys.compareAndSet(index, null, key)) {
+                    t.claimed.incrementAndGet();
+                    k = key;
+                } else {
+                    continue;
+                }
+            }
+            if (k == MOVED_KEY) {
+                return putVal(helpCopy(t), key, hash, value, mode, expected);
+            }
+            if (k == key || (k.hashCode() == hash && k.equals(key))) {
+                break;
+            }
+            index = (index + 1) % length;
+            probes++;
+        }
+
+        while (true) {
+            Object v = t.values.get(index);
+            if (mode == COPY && v != null && v != MOVED_EMPTY) {
+                // A value was written here, so the copied one is stale even if this slot has moved on
+                return v;
+            }
+            if (t.next.get() != null) {
+                // The slot is copied first, so the write lands in the new table after the copied value
+                copySlot(t, index);
+                return putVal(helpCopy(t), key, hash, value, mode, expected);
+            }
+            if (isMoved(v) || v instanceof Prime) {
+                continue;
+            }
+            boolean absent = v == null || v == TOMBSTONE;
+            if ((mode == REMOVE && absent)
+                    || (mode == REPLACE && (absent || !v.equals(expected)))) {
+                return absent ? null : v;
+            }
+            if (t.values.compareAndSet(index, v, value)) {
+                if (mode != COPY) {
+                    if (absent && value != TOMBSTONE) {
+                        size.increment();
+                    } else if (!absent && value == TOMBSTONE) {
+                        size.decrement();
+                    }
+                    lastUpdated = index;
+                }
+                return absent ? null : v;
+            }
+        }
+    }
+
+    /**
+     * Attaches the new table to the given one, unless some thread has done it already.
+     * The new table is doubled if more than half of its threshold is alive, otherwise the
+     * table of the same capacity only drops the tombstones.
+     */
+    private void resize(Table t) {
+        if (t.next.get() != null) {
+            return;
+        }
+        int length = size() >= t.threshold / 2 ? t.length() * 2 : t.length();
+        t.next.compareAndSet(null, new Table(length, loadFactor));
+    }
+
+    /**
+     * Copies the next chunk of slots of the resized table and switches the map to the new table
+     * when the copying is over.
+     *
+     * @return the new table.
+     */
+    private Table helpCopy(Table t) {
+        Table next = t.next.get();
+        int start = t.copyIndex.getAndAdd(COPY_CHUNK);
+        if (start < t.length()) {
+            int end = Math.min(start + COPY_CHUNK, t.length());
+            for (int i = start; i < end; i++) {
+                copySlot(t, i);
+            }
+        }
+        promote();
+        return next;
+    }
+
+    /**
+     * Moves the slot to the new table. Exactly one thread turns the slot into its final state,
+     * MOVED_KEY, MOVED or MOVED_EMPTY, and counts it as copied.
+     */
+    @SuppressWarnings("unchecked")
+    private void copySlot(Table t, int index) {
+        Object k = t.keys.get(index);
+        while (k == null) {
+            if (t.keys.compareAndSet(index, null, MOVED_KEY)) {
+                t.copyDone.incrementAndGet();
+                return;
+            }
+            k = t.keys.get(index);
+        }
+        if (k == MOVED_KEY) {
+            return;
+        }
+
+        Object v = t.values.get(index);
+        while (!(v instanceof Prime)) {
+            if (isMoved(v)) {
+                return;
+            }
+            Object box = v == null ? MOVED_EMPTY : v == TOMBSTONE ? MOVED : new Prime(v);
+            if (t.values.compareAndSet(index, v, box)) {
+                if (!(box instanceof Prime)) {
+                    t.copyDone.incrementAndGet();
+                    return;
+                }
+                v = box;
+            } else {
+                v = t.values.get(index);
+            }
+        }
+        putVal(t.next.get(), (K) k, k.hashCode(), ((Prime) v).value, COPY, null);
+        if (t.values.compareAndSet(index, v, MOVED)) {
+            t.copyDone.incrementAndGet();
+        }
+    }
+
+    /**
+     * Switches the map to the new tables of the completely copied ones.
+     */
+    private void promote() {
+        Table t = table.get();
+        while (t.next.get() != null && t.copyDone.get() == t.length()) {
+            if (table.compareAndSet(t, t.next.get())) {
+                rehashesCounter.incrementAndGet();
+            }
+            t = table.get();
+        }
+    }
+
+    private static boolean isMoved(Object value) {
+        return value == MOVED || value == MOVED_EMPTY;
+    }
+
+    private static Object unbox(Object value) {
+        if (value instanceof Prime) {
+            return ((Prime) value).value;
+        }
+        return value == TOMBSTONE || isMoved(value) ? null : value;
+    }
+
+    /**
+     * Returns the number of rehashes occurred in the hash table.
+     *
+     * @return number of rehashes.
+     */
+    @Override
+    public int getRehashesCounter() {
+        return rehashesCounter.get();
+    }
+
+    /**
+     * Returns the number of slots left to copy by the resize.
+     *
+     * @return Number of slots left to copy, 0 if no resize is in progress.
+     */
+    @Override
+    public int getMigrationChainsLeft() {
+        Table t = table.get();
+        return t.next.get() == null ? 0 : t.length() - t.copyDone.get();
+    }
+
+    /**
+     * Returns the capacity of hash table.
+     *
+     * @return capacity of hash table.
+     */
+    @Override
+    public int getTableCapacity() {
+        return table.get().length();
+    }
+
+    /**
+     * Returns the index of last update element of the hash table.
+     *
+     * @return the index of last update element of the hash table.
+     */
+    @Override
+    public int getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * Returns the number of claimed key slots in the hash table, the tombstones included.
+     *
+     * @return the number of claimed key slots in the hash table.
+     */
+    @Override
+    public int getNumberOfOccupied() {
+        return table.get().claimed.get();
+    }
+
+    /**
+     * Returns the number of the removed keys still holding their slots.
+     *
+     * @return Number of tombstones.
+     */
+    @Override
+    public int getTombstonesCounter() {
+        Table t = table.get();
+        int tombstones = 0;
+        for (int i = 0; i < t.length(); i++) {
+            if (t.values.get(i) == TOMBSTONE) {
+                tombstones++;
+            }
+        }
+        return tombstones;
+    }
+
+    protected static class Table {
+
+        // keys of the slots
+        protected final AtomicReferenceArray<Object> keys;
+        // values of the slots
+        protected final AtomicReferenceArray<Object> values;
+        // the amount of claimed key slots, which triggers the resize
+        protected final int threshold;
+        // the amount of claimed key slots
+        protected final AtomicInteger claimed = new AtomicInteger();
+        // the table the slots are copied to
+        protected final AtomicReference<Table> next = new AtomicReference<>();
+        // the first slot of the next chunk to copy
+        protected final AtomicInteger copyIndex = new AtomicInteger();
+        // the amount of copied slots
+        protected final AtomicInteger copyDone = new AtomicInteger();
+
+        protected Table(int capacity, float loadFactor) {
+            this.keys = new AtomicReferenceArray<>(capacity);
+            this.values = new AtomicReferenceArray<>(capacity);
+            this.threshold = (int) (capacity * loadFactor);
+        }
+
+        protected int length() {
+            return keys.length();
+        }
+    }
+
+    /**
+     * The value frozen while the slot is being copied.
+     */
+    protected static class Prime {
+
+        protected final Object value;
+
+        protected Prime(Object value) {
+            this.value = value;
+        }
+    }
+}
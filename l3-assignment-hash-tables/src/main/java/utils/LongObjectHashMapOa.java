@@ -0,0 +1,432 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * The implementation of hash table based on open addressing with primitive long keys.
+ * Keys are kept in a long[] array and values in a parallel Object[] array, so neither
+ * the key boxing nor the Entry allocation of HashMapOa happens on put.
+ * An empty slot is marked by null in the values array. The linear probing shifts the cluster back over
+ * a removed slot, the other probings mark it by the DELETED sentinel and clean the table up by the rehash
+ * of the same size when there are too many of them.
+ * The methods of the primitive keys are named putLong, getLong and so on, so a call with the Long values
+ * is not ambiguous between them and the methods of the boxed keys.
+ *
+ * @param <V> value type of hash table
+ */
+public class LongObjectHashMapOa<V> implements EvaluableMap<Long, V> {
+
+    // Sentinel of the removed slot in the values array
+    private static final Object DELETED = new Object();
+
+    // Keys of the hash table
+    protected long[] keys;
+    // Values of the hash table
+    protected Object[] values;
+    // The amount of key-value pairs
+    protected int size = 0;
+    // Load factor
+    protected float loadFactor;
+    // The table is cleaned up by the rehash of the same size when DELETED places exceed this part of it
+    protected float maxTombstoneFactor = HashMapOa.DEFAULT_MAX_TOMBSTONE_FACTOR;
+    // Hash function
+    protected HashManager.HashType ht;
+    //--------------------------------------------------------------------------
+    //  Parameters of hash table
+    //--------------------------------------------------------------------------
+    // The amount of rehashes
+    protected int rehashesCounter = 0;
+    // The index of last updated element
+    protected int lastUpdated = 0;
+    // The number of occupied places in the hash table
+    protected int numberOfOccupied = 0;
+    // The number of places marked as DELETED
+    protected int tombstonesCounter = 0;
+
+    private final HashMapOa.OpenAddressingType oaType;
+
+    public LongObjectHashMapOa() {
+        this(HashMapOa.DEFAULT_HASH_TYPE);
+    }
+
+    public LongObjectHashMapOa(HashManager.HashType ht) {
+        this(HashMapOa.DEFAULT_INITIAL_CAPACITY, ht);
+    }
+
+    public LongObjectHashMapOa(int initialCapacity, HashManager.HashType ht) {
+        this(initialCapacity, HashMapOa.DEFAULT_LOAD_FACTOR, ht, HashMapOa.DEFAULT_OPEN_ADDRESSING_TYPE);
+    }
+
+    public LongObjectHashMapOa(float loadFactor, HashManager.HashType ht) {
+        this(HashMapOa.DEFAULT_INITIAL_CAPACITY, loadFactor, ht, HashMapOa.DEFAULT_OPEN_ADDRESSING_TYPE);
+    }
+
+    public LongObjectHashMapOa(int initialCapacity, float loadFactor, HashManager.HashType ht, HashMapOa.OpenAddressingType oaType) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+
+        if ((loadFactor <= 0.0) || (loadFactor > 1.0)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+
+        if (oaType == HashMapOa.OpenAddressingType.ROBIN_HOOD) {
+            throw new IllegalArgumentException("Unsupported open addressing type: " + oaType);
+        }
+
+        this.keys = new long[initialCapacity];
+        this.values = new Object[initialCapacity];
+        this.loadFactor = loadFactor;
+        this.ht = ht;
+        this.oaType = oaType;
+    }
+
+    /**
+     * Sets the part of the table the DELETED places may take: the removal which exceeds it rehashes
+     * the table into the table of the same size, which drops them. The addition after which the key-value
+     * pairs and the DELETED places together exceed the load factor rehashes the same way.
+     * The linear probing leaves no DELETED places.
+     *
+     * @param maxTombstoneFactor max tombstone factor, 0 &lt; factor &lt;= 1.
+     */
+    public void setMaxTombstoneFactor(float maxTombstoneFactor) {
+        if ((maxTombstoneFactor <= 0.0) || (maxTombstoneFactor > 1.0)) {
+            throw new IllegalArgumentException("Illegal tombstone factor: " + maxTombstoneFactor);
+        }
+
+        this.maxTombstoneFactor = maxTombstoneFactor;
+    }
+
+    /**
+     * Checks if the hash table is empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of key-value pairs in the hash table.
+     *
+     * @return the number of key-value pairs.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Clears hash table.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+        lastUpdated = 0;
+        rehashesCounter = 0;
+        numberOfOccupied = 0;
+        tombstonesCounter = 0;
+    }
+
+    @Override
+    public boolean contains(Long key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in contains(K key)");
+        }
+
+        return containsLong(key.longValue());
+    }
+
+    public boolean containsLong(long key) {
+        return getLong(key) != null;
+    }
+
+    @Override
+    public V put(Long key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key or value is null in put(K key, V value)");
+        }
+
+        return putLong(key.longValue(), value);
+    }
+
+    public V putLong(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Key or value is null in put(K key, V value)");
+        }
+        int position = findPosition(key, true);
+        if (position == -1) {
+            rehash(keys.length * 2);
+            return putLong(key, value);
+        }
+
+        if (values[position] == null || values[position] == DELETED) {
+            if (values[position] == DELETED) {
+                tombstonesCounter--;
+            }
+            keys[position] = key;
+            values[position] = value;
+            size++;
+
+            if (size > keys.length * loadFactor) {
+                rehash(keys.length * 2);
+            } else if (size + tombstonesCounter > keys.length * loadFactor) {
+                // The DELETED places would leave no empty place to end the probing of the absent keys
+                rehash(keys.length);
+            } else {
+                numberOfOccupied++;
+                lastUpdated = position;
+            }
+        } else {
+            values[position] = value;
+            lastUpdated = position;
+        }
+
+        return value;
+    }
+
+    @Override
+    public V get(Long key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in get(K key)");
+        }
+
+        return getLong(key.longValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getLong(long key) {
+        int position = findPosition(key, false);
+        if (position != -1 && values[position] != null && values[position] != DELETED) {
+            return (V) values[position];
+        }
+
+        return null;
+    }
+
+    @Override
+    public V remove(Long key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in remove(K key)");
+        }
+
+        return removeLong(key.longValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    public V removeLong(long key) {
+        int position = findPosition(key, false);
+        if (position == -1 || values[position] == null || values[position] == DELETED) {
+            return null;
+        }
+
+        V value = (V) values[position];
+        size--;
+        numberOfOccupied--;
+        lastUpdated = position;
+        if (oaType == HashMapOa.OpenAddressingType.LINEAR) {
+            shiftBackward(position);
+        } else {
+            values[position] = DELETED;
+            tombstonesCounter++;
+            if (tombstonesCounter > keys.length * maxTombstoneFactor) {
+                rehash(keys.length);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Backward shift deletion for linear probing. A key of the cluster may fill the hole
+     * if its home slot does not lie between the hole and the key.
+     */
+    private void shiftBackward(int hole) {
+        values[hole] = null;
+        for (int next = (hole + 1) % keys.length; values[next] != null; next = (next + 1) % keys.length) {
+            int home = HashManager.hash(Long.hashCode(keys[next]), keys.length, ht);
+            if ((next - home + keys.length) % keys.length >= (next - hole + keys.length) % keys.length) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                values[next] = null;
+                hole = next;
+            }
+        }
+    }
+
+    @Override
+    public boolean replace(Long key, V oldValue, V newValue) {
+        if (key == null || newValue == null) {
+            return false;
+        }
+
+        int position = findPosition(key, false);
+        if (position == -1 || values[position] == null || values[position] == DELETED
+                || !Objects.equals(values[position], oldValue)) {
+            return false;
+        }
+
+        values[position] = newValue;
+        lastUpdated = position;
+        return true;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return value != null && Arrays.stream(values)
+                .anyMatch(v -> v != DELETED && value.equals(v));
+    }
+
+    /**
+     * Performs the action for each key-value pair of the hash table.
+     *
+     * @param action
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super Long, ? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null && values[i] != DELETED) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null && values[i] != DELETED) {
+                if (result.length() > 0) {
+                    result.append(System.lineSeparator());
+                }
+                result.append(keys[i]).append("=").append(values[i]);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Moves the pairs into the table of the given capacity, the DELETED places are dropped.
+     */
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        LongObjectHashMapOa<V> newMap = new LongObjectHashMapOa<>(capacity, loadFactor, ht, oaType);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null && oldValues[i] != DELETED) {
+                newMap.putNew(oldKeys[i], oldValues[i]);
+            }
+        }
+        keys = newMap.keys;
+        values = newMap.values;
+        numberOfOccupied = newMap.numberOfOccupied;
+        tombstonesCounter = 0;
+        lastUpdated = newMap.lastUpdated;
+        rehashesCounter++;
+    }
+
+    /**
+     * Places the key, known to be absent, into the table without the threshold check.
+     * Used while rehashing: the new table has no DELETED places, so it has room for all the keys,
+     * unless the quadratic probing misses the free places and the table grows.
+     */
+    private void putNew(long key, Object value) {
+        int position = findPosition(key, true);
+        if (position == -1) {
+            rehash(keys.length * 2);
+            putNew(key, value);
+            return;
+        }
+        keys[position] = key;
+        values[position] = value;
+        size++;
+        numberOfOccupied++;
+        lastUpdated = position;
+    }
+
+    private int findPosition(long key, boolean stopAtDeleted) {
+        int index = HashManager.hash(Long.hashCode(key), keys.length, ht);
+
+        int position = index;
+        int firstDeleted = -1;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[position] == null) {
+                return stopAtDeleted && firstDeleted != -1 ? firstDeleted : position;
+            }
+            if (values[position] == DELETED) {
+                if (firstDeleted == -1) {
+                    firstDeleted = position;
+                }
+            } else if (keys[position] == key) {
+                return position;
+            }
+
+            position = calculatePosition(index, i, key);
+        }
+        return stopAtDeleted ? firstDeleted : -1;
+    }
+
+    private int calculatePosition(int index, int i, long key) {
+        switch (oaType) {
+            case LINEAR:
+                return (index + i + 1) % keys.length;
+            case QUADRATIC:
+                return (index + (i + 1) * (i + 1)) % keys.length;
+            case DOUBLE_HASHING:
+                return (index + (i + 1) * (7 - Math.abs(Long.hashCode(key) % 7))) % keys.length;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of rehashes occurred in the hash table.
+     *
+     * @return number of rehashes.
+     */
+    @Override
+    public int getRehashesCounter() {
+        return rehashesCounter;
+    }
+
+    /**
+     * Returns the number of places marked as DELETED.
+     *
+     * @return number of DELETED places.
+     */
+    @Override
+    public int getTombstonesCounter() {
+        return tombstonesCounter;
+    }
+
+    /**
+     * Returns the capacity of hash table.
+     *
+     * @return capacity of hash table.
+     */
+    @Override
+    public int getTableCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the index of last update element of the hash table.
+     *
+     * @return the index of last update element of the hash table.
+     */
+    @Override
+    public int getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * Returns the number of occupied places in the hash table.
+     *
+     * @return the number of occupied places in the hash table.
+     */
+    @Override
+    public int getNumberOfOccupied() {
+        return numberOfOccupied;
+    }
+}
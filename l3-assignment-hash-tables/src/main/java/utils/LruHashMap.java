@@ -0,0 +1,99 @@
+package utils;
+
+/**
+ * The bounded cache based on the chained hash table. The nodes of the table are also linked
+ * into the list in the order of access, so the least recently used key-value pair is evicted
+ * in O(1) when the cache is full, without a separate list to search.
+ *
+ * @param <K> key type of the cache
+ * @param <V> value type of the cache
+ */
+public class LruHashMap<K, V> extends BoundedCache<K, V> {
+
+    // the least recently used node, evicted first
+    private LruNode<K, V> eldest;
+    // the most recently used node
+    private LruNode<K, V> youngest;
+
+    public LruHashMap(int maxEntries) {
+        this(maxEntries, DEFAULT_HASH_TYPE);
+    }
+
+    public LruHashMap(int maxEntries, HashManager.HashType ht) {
+        this(maxEntries, DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, ht);
+    }
+
+    public LruHashMap(int maxEntries, int initialCapacity, float loadFactor, HashManager.HashType ht) {
+        super(maxEntries, initialCapacity, loadFactor, ht);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        eldest = null;
+        youngest = null;
+    }
+
+    @Override
+    protected Node<K, V> newNode(int hash, K key, V value, Node<K, V> next) {
+        return new LruNode<>(hash, key, value, next);
+    }
+
+    @Override
+    protected void afterNodeAccess(Node<K, V> node) {
+        LruNode<K, V> lruNode = (LruNode<K, V>) node;
+        if (lruNode != youngest) {
+            unlink(lruNode);
+            linkLast(lruNode);
+        }
+    }
+
+    @Override
+    protected void afterNodeInsertion(Node<K, V> node) {
+        linkLast((LruNode<K, V>) node);
+        if (size > maxEntries) {
+            evict(eldest);
+        }
+    }
+
+    @Override
+    protected void afterNodeRemoval(Node<K, V> node) {
+        unlink((LruNode<K, V>) node);
+    }
+
+    private void linkLast(LruNode<K, V> node) {
+        node.before = youngest;
+        node.after = null;
+        if (youngest == null) {
+            eldest = node;
+        } else {
+            youngest.after = node;
+        }
+        youngest = node;
+    }
+
+    private void unlink(LruNode<K, V> node) {
+        if (node.before == null) {
+            eldest = node.after;
+        } else {
+            node.before.after = node.after;
+        }
+        if (node.after == null) {
+            youngest = node.before;
+        } else {
+            node.after.before = node.before;
+        }
+        node.before = null;
+        node.after = null;
+    }
+
+    protected static class LruNode<K, V> extends Node<K, V> {
+
+        // Neighbours in the access order list, the eldest first
+        protected LruNode<K, V> before, after;
+
+        protected LruNode(int hash, K key, V value, Node<K, V> next) {
+            super(hash, key, value, next);
+        }
+    }
+}
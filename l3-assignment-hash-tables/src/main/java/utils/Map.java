@@ -1,5 +1,10 @@
 package utils;
 
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
 /**
  * The interface describes the hash map ADT.
  *
@@ -79,4 +84,144 @@ public interface Map<K, V> {
      * @return true if one or more values exist, else false
      */
     boolean containsValue(Object value);
+
+    /**
+     * Adds the key-value pair if the key does not exist in the hash table.
+     * The hash tables which can locate the key once override it, the default one looks the key up twice.
+     *
+     * @param key key.
+     * @param value value.
+     * @return the value associated with the key before, or null if the pair was added.
+     */
+    default V putIfAbsent(K key, V value) {
+        V oldValue = get(key);
+        if (oldValue == null) {
+            put(key, value);
+        }
+        return oldValue;
+    }
+
+    /**
+     * Adds the value computed from the key if the key does not exist in the hash table.
+     * The null computed value is not added.
+     *
+     * @param key key.
+     * @param mappingFunction computes the value of the absent key.
+     * @return the value associated with the key after the call, or null.
+     */
+    default V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V oldValue = get(key);
+        if (oldValue != null) {
+            return oldValue;
+        }
+        V value = mappingFunction.apply(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Replaces the value of the existing key with the value computed from the key and its value.
+     * The null computed value removes the pair.
+     *
+     * @param key key.
+     * @param remappingFunction computes the new value from the key and its old value.
+     * @return the value associated with the key after the call, or null.
+     */
+    default V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        V oldValue = get(key);
+        if (oldValue == null) {
+            return null;
+        }
+        V value = remappingFunction.apply(key, oldValue);
+        if (value == null) {
+            remove(key);
+        } else {
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Associates the key with the value computed from the key and its value, which is null if the key does not exist.
+     * The null computed value removes the pair.
+     *
+     * @param key key.
+     * @param remappingFunction computes the new value from the key and its old value.
+     * @return the value associated with the key after the call, or null.
+     */
+    default V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        V oldValue = get(key);
+        V value = remappingFunction.apply(key, oldValue);
+        if (value != null) {
+            put(key, value);
+        } else if (oldValue != null) {
+            remove(key);
+        }
+        return value;
+    }
+
+    /**
+     * Adds the value if the key does not exist in the hash table, otherwise combines the existing value with it,
+     * e.g. merge(word, 1, Integer::sum) counts the words. The null combined value removes the pair.
+     *
+     * @param key key.
+     * @param value value.
+     * @param remappingFunction combines the old value and the value.
+     * @return the value associated with the key after the call, or null.
+     */
+    default V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        V oldValue = get(key);
+        V newValue = oldValue == null ? value : remappingFunction.apply(oldValue, value);
+        if (newValue == null) {
+            remove(key);
+        } else {
+            put(key, newValue);
+        }
+        return newValue;
+    }
+
+    /**
+     * Performs the action for each key-value pair of the hash table.
+     *
+     * @param action action.
+     */
+    void forEach(BiConsumer<? super K, ? super V> action);
+
+    /**
+     * Prepares the hash table for the expected number of key-value pairs, so adding them does not rehash it.
+     * The hash tables which can not be sized in advance ignore it.
+     *
+     * @param expectedSize expected number of key-value pairs.
+     */
+    default void ensureCapacity(int expectedSize) {
+    }
+
+    /**
+     * Adds all the key-value pairs of the map, sizing the hash table once beforehand.
+     *
+     * @param map map.
+     */
+    default void putAll(Map<? extends K, ? extends V> map) {
+        ensureCapacity(size() + map.size());
+        map.forEach(this::put);
+    }
+
+    /**
+     * Adds the keys paired with the values of the same index, sizing the hash table once beforehand.
+     *
+     * @param keys keys.
+     * @param values values.
+     */
+    default void putAll(List<? extends K> keys, List<? extends V> values) {
+        if (keys.size() != values.size()) {
+            throw new IllegalArgumentException("Illegal number of values: " + values.size());
+        }
+
+        ensureCapacity(size() + keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            put(keys.get(i), values.get(i));
+        }
+    }
 }
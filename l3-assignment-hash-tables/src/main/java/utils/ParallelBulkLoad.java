@@ -0,0 +1,171 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * The common steps of the parallel bulk build of a hash table. The keys are hashed in parallel,
+ * then the entries are grouped by ranges of their home indexes, so each range of the table
+ * can be filled by its own worker without any locks. Within a range the entries keep their input order,
+ * so a later value of the same key still replaces the earlier one.
+ */
+final class ParallelBulkLoad {
+
+    // The smaller inputs are added by a single thread
+    static final int MIN_PARALLEL_SIZE = 1 << 14;
+    // The number of entries hashed and scattered by one task
+    static final int CHUNK = 1 << 12;
+    // The number of ranges given to each worker thread, so the uneven ranges are balanced
+    static final int RANGES_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final int tableLength;
+    final Object[] keys;
+    final Object[] values;
+    // hash codes of the keys
+    final int[] hashes;
+    // home indexes of the keys
+    final int[] indices;
+    // entry numbers grouped by range
+    final int[] order;
+    // range r occupies order[bounds[r]] .. order[bounds[r + 1] - 1]
+    final int[] bounds;
+    // the number of ranges
+    final int ranges;
+
+    ParallelBulkLoad(List<?> keys, List<?> values, int tableLength, HashManager.HashType ht, ForkJoinPool pool) {
+        if (keys.size() != values.size()) {
+            throw new IllegalArgumentException("Illegal number of values: " + values.size());
+        }
+
+        this.pool = pool;
+        this.tableLength = tableLength;
+        this.keys = keys.toArray();
+        this.values = values.toArray();
+        int n = this.keys.length;
+        this.hashes = new int[n];
+        this.indices = new int[n];
+        this.order = new int[n];
+        this.ranges = Math.min(tableLength, pool.getParallelism() * RANGES_PER_THREAD);
+        this.bounds = new int[ranges + 1];
+
+        int chunks = (n + CHUNK - 1) / CHUNK;
+        int[][] offsets = new int[chunks][ranges];
+        forEachTask(chunks, c -> hashChunk(c, ht, offsets[c]));
+
+        // The counts of the chunks are turned into their first positions in each range
+        int position = 0;
+        for (int r = 0; r < ranges; r++) {
+            bounds[r] = position;
+            for (int c = 0; c < chunks; c++) {
+                int count = offsets[c][r];
+                offsets[c][r] = position;
+                position += count;
+            }
+        }
+        bounds[ranges] = position;
+        forEachTask(chunks, c -> scatterChunk(c, offsets[c]));
+    }
+
+    /**
+     * Returns the range of the home index.
+     */
+    int rangeOf(int index) {
+        return (int) ((long) index * ranges / tableLength);
+    }
+
+    /**
+     * Returns the first table index of the range.
+     */
+    int rangeStart(int range) {
+        return (int) (((long) range * tableLength + ranges - 1) / ranges);
+    }
+
+    /**
+     * Runs the action for each of the tasks 0 .. count - 1 in the pool and waits for all of them.
+     */
+    void forEachTask(int count, IntConsumer action) {
+        pool.invoke(new Tasks(0, count, action));
+    }
+
+    /**
+     * Fills each range by its own worker and returns the counters of the ranges in their order.
+     */
+    RangeFill[] fillRanges(ObjIntConsumer<RangeFill> fill) {
+        RangeFill[] fills = new RangeFill[ranges];
+        forEachTask(ranges, r -> {
+            fills[r] = new RangeFill();
+            fill.accept(fills[r], r);
+        });
+        return fills;
+    }
+
+    private void hashChunk(int chunk, HashManager.HashType ht, int[] counts) {
+        int end = Math.min((chunk + 1) * CHUNK, keys.length);
+        for (int i = chunk * CHUNK; i < end; i++) {
+            if (keys[i] == null || values[i] == null) {
+                throw new IllegalArgumentException("Key or value is null in put(K key, V value)");
+            }
+            hashes[i] = keys[i].hashCode();
+            indices[i] = HashManager.hash(hashes[i], tableLength, ht);
+            counts[rangeOf(indices[i])]++;
+        }
+    }
+
+    private void scatterChunk(int chunk, int[] offsets) {
+        int end = Math.min((chunk + 1) * CHUNK, keys.length);
+        for (int i = chunk * CHUNK; i < end; i++) {
+            order[offsets[rangeOf(indices[i])]++] = i;
+        }
+    }
+
+    /**
+     * The counters of one range filled by a worker, merged into the hash table afterwards.
+     */
+    static class RangeFill {
+
+        // the number of added key-value pairs
+        int inserted = 0;
+        // the number of new chains
+        int newChains = 0;
+        // the number of reused DELETED places
+        int reusedDeleted = 0;
+        // the longest chain made
+        int maxChainSize = 0;
+        // the last updated index
+        int lastUpdated = -1;
+        // the entries which could not be added within the range, left for the calling thread
+        final List<Integer> deferred = new ArrayList<>();
+        // the chains grown over the treeify threshold
+        final List<Integer> longChains = new ArrayList<>();
+    }
+
+    private static class Tasks extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final IntConsumer action;
+
+        private Tasks(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(from);
+            } else if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Tasks(from, middle, action), new Tasks(middle, to, action));
+            }
+        }
+    }
+}
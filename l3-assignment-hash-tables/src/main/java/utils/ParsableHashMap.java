@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static gui.Table.ARROW;
 
@@ -76,10 +77,12 @@ public class ParsableHashMap<K, V extends Parsable<V>> extends HashMap<K, V> imp
         }
         clear();
         try (BufferedReader fReader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
-            fReader.lines()
+            List<String> lines = fReader.lines()
                     .map(String::trim)
                     .filter(line -> !line.isEmpty())
-                    .forEach(line -> put(CarsGenerator.generateId(), line));
+                    .collect(Collectors.toList());
+            ensureCapacity(lines.size());
+            lines.forEach(line -> put(CarsGenerator.generateId(), line));
         } catch (FileNotFoundException e) {
             Ks.ern("Suitable data file not found: " + e.getLocalizedMessage());
         } catch (IOException | UncheckedIOException e) {
@@ -116,20 +119,29 @@ public class ParsableHashMap<K, V extends Parsable<V>> extends HashMap<K, V> imp
 
     @Override
     public String[][] getMapModel() {
-        String[][] result = new String[table.length][];
+        List<String[]> result = new ArrayList<>();
+        addChainsModel(result, table, "");
+        // Chains of the old table, which are not migrated yet by the incremental rehash
+        if (oldTable != null) {
+            addChainsModel(result, oldTable, "old ");
+        }
+        return result.toArray(new String[0][]);
+    }
+
+    private void addChainsModel(List<String[]> result, Node<K, V>[] chains, String labelPrefix) {
         int count = 0;
-        for (Node<K, V> n : table) {
+        for (Node<K, V> n : chains) {
             List<String> list = new ArrayList<>();
-            list.add("[ " + count + " ]");
+            // Tree bins are marked by T, their nodes are listed root first
+            list.add("[ " + labelPrefix + count + (n instanceof TreeNode ? " T" : "") + " ]");
             while (n != null) {
                 list.add(ARROW);
                 list.add(n.toString());
                 n = n.next;
             }
-            result[count] = list.toArray(new String[0]);
+            result.add(list.toArray(new String[0]));
             count++;
         }
-        return result;
     }
 
     private static <T, R> R create(Function<T, R> function, T data, String errorMessage) {
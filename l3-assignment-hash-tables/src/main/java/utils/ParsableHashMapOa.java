@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static gui.Table.ARROW;
 
@@ -79,10 +80,12 @@ public class ParsableHashMapOa<K, V extends Parsable<V>> extends HashMapOa<K, V>
         }
         clear();
         try (BufferedReader fReader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
-            fReader.lines()
+            List<String> lines = fReader.lines()
                     .map(String::trim)
                     .filter(line -> !line.isEmpty())
-                    .forEach(line -> put(CarsGenerator.generateId(), line));
+                    .collect(Collectors.toList());
+            ensureCapacity(lines.size());
+            lines.forEach(line -> put(CarsGenerator.generateId(), line));
         } catch (FileNotFoundException e) {
             Ks.ern("Suitable data file not found: " + e.getLocalizedMessage());
         } catch (IOException | UncheckedIOException e) {
@@ -0,0 +1,371 @@
+package utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * The implementation of hash table based on open addressing with control bytes (Swiss table).
+ * Next to the keys and values a parallel byte array of control bytes is kept: a control byte
+ * is either EMPTY, DELETED or the 7 high bits of the hash of the key in the slot.
+ * Slots are probed in groups of GROUP_SIZE: the control bytes of a group are read as one long
+ * and compared with the fingerprint of the key all at once (SWAR), so equals is called only
+ * for the slots whose fingerprint matches, and an unsuccessful search stops at the first group
+ * containing an EMPTY slot. Groups are probed quadratically.
+ * The capacity is always a power of two not less than GROUP_SIZE.
+ *
+ * @param <K> key type of hash table
+ * @param <V> value type of hash table
+ */
+public class SwissHashMapOa<K, V> implements EvaluableMap<K, V> {
+
+    public static final int DEFAULT_INITIAL_CAPACITY = 16;
+    // The number of control bytes scanned at once
+    public static final int GROUP_SIZE = Long.BYTES;
+
+    private static final byte EMPTY = (byte) 0b1000_0000;
+    private static final byte DELETED = (byte) 0b1111_1110;
+    private static final long LSBS = 0x0101_0101_0101_0101L;
+    private static final long MSBS = 0x8080_8080_8080_8080L;
+    private static final VarHandle GROUP = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Control bytes
+    protected byte[] control;
+    // Keys of the hash table
+    protected Object[] keys;
+    // Values of the hash table
+    protected Object[] values;
+    // The amount of key-value pairs
+    protected int size = 0;
+    // The number of EMPTY slots which may still be filled before rehashing (7/8 of the capacity at most)
+    protected int growthLeft;
+    //--------------------------------------------------------------------------
+    //  Parameters of hash table
+    //--------------------------------------------------------------------------
+    // The amount of rehashes
+    protected int rehashesCounter = 0;
+    // The index of last updated element
+    protected int lastUpdated = 0;
+
+    public SwissHashMapOa() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public SwissHashMapOa(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+
+        int capacity = GROUP_SIZE;
+        while (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        control = new byte[capacity];
+        Arrays.fill(control, EMPTY);
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        growthLeft = capacity - capacity / 8;
+    }
+
+    /**
+     * Checks if the hash table is empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of key-value pairs in the hash table.
+     *
+     * @return the number of key-value pairs.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Clears hash table.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(control, EMPTY);
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        growthLeft = control.length - control.length / 8;
+        size = 0;
+        lastUpdated = 0;
+        rehashesCounter = 0;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in contains(K key)");
+        }
+
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key or value is null in put(K key, V value)");
+        }
+
+        int hash = hash(key);
+        int position = findPosition(key, hash);
+        if (position != -1) {
+            values[position] = value;
+            lastUpdated = position;
+            return value;
+        }
+
+        position = findInsertPosition(hash);
+        if (growthLeft == 0 && control[position] == EMPTY) {
+            rehash();
+            position = findInsertPosition(hash);
+        }
+        if (control[position] == EMPTY) {
+            growthLeft--;
+        }
+        control[position] = fingerprint(hash);
+        keys[position] = key;
+        values[position] = value;
+        size++;
+        lastUpdated = position;
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in get(K key)");
+        }
+
+        int position = findPosition(key, hash(key));
+        return position == -1 ? null : (V) values[position];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null in remove(K key)");
+        }
+
+        int position = findPosition(key, hash(key));
+        if (position == -1) {
+            return null;
+        }
+
+        V value = (V) values[position];
+        keys[position] = null;
+        values[position] = null;
+        // No search went past a group which still has an EMPTY slot, so the slot may become EMPTY again
+        if (matchEmpty(group(position & -GROUP_SIZE)) != 0) {
+            control[position] = EMPTY;
+            growthLeft++;
+        } else {
+            control[position] = DELETED;
+        }
+        size--;
+        lastUpdated = position;
+        return value;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || newValue == null) {
+            return false;
+        }
+
+        int position = findPosition(key, hash(key));
+        if (position == -1 || !values[position].equals(oldValue)) {
+            return false;
+        }
+
+        values[position] = newValue;
+        lastUpdated = position;
+        return true;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return value != null && Arrays.asList(values).contains(value);
+    }
+
+    /**
+     * Performs the action for each key-value pair of the hash table.
+     *
+     * @param action
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (control[i] >= 0) {
+                action.accept((K) keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (control[i] >= 0) {
+                if (result.length() > 0) {
+                    result.append(System.lineSeparator());
+                }
+                result.append(keys[i]).append("=").append(values[i]);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Rebuilds the table dropping the DELETED slots. The capacity is doubled
+     * only if more than half of the maximum load is taken by live entries.
+     */
+    private void rehash() {
+        byte[] oldControl = control;
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(size > (control.length - control.length / 8) / 2 ? control.length * 2 : control.length);
+        for (int i = 0; i < oldControl.length; i++) {
+            if (oldControl[i] >= 0) {
+                int hash = hash(oldKeys[i]);
+                int position = findInsertPosition(hash);
+                control[position] = fingerprint(hash);
+                keys[position] = oldKeys[i];
+                values[position] = oldValues[i];
+                growthLeft--;
+            }
+        }
+        rehashesCounter++;
+    }
+
+    private int findPosition(K key, int hash) {
+        long pattern = LSBS * fingerprint(hash);
+        int groupMask = control.length / GROUP_SIZE - 1;
+        int group = hash & groupMask;
+        for (int i = 1; i <= groupMask + 1; i++) {
+            int base = group * GROUP_SIZE;
+            long controls = group(base);
+            for (long matches = match(controls, pattern); matches != 0; matches &= matches - 1) {
+                int position = base + (Long.numberOfTrailingZeros(matches) >>> 3);
+                if (control[position] >= 0 && key.equals(keys[position])) {
+                    return position;
+                }
+            }
+            if (matchEmpty(controls) != 0) {
+                return -1;
+            }
+            group = (group + i) & groupMask;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first EMPTY or DELETED slot in the probe sequence of the hash.
+     */
+    private int findInsertPosition(int hash) {
+        int groupMask = control.length / GROUP_SIZE - 1;
+        int group = hash & groupMask;
+        for (int i = 1; ; i++) {
+            int base = group * GROUP_SIZE;
+            long free = matchEmptyOrDeleted(group(base));
+            if (free != 0) {
+                return base + (Long.numberOfTrailingZeros(free) >>> 3);
+            }
+            group = (group + i) & groupMask;
+        }
+    }
+
+    private long group(int base) {
+        return (long) GROUP.get(control, base);
+    }
+
+    /**
+     * Marks with the high bit the bytes equal to the fingerprint. A byte just above a true match
+     * may be marked falsely, so the control byte itself is rechecked before comparing keys.
+     */
+    private static long match(long controls, long pattern) {
+        long x = controls ^ pattern;
+        return (x - LSBS) & ~x & MSBS;
+    }
+
+    private static long matchEmpty(long controls) {
+        return controls & (~controls << 6) & MSBS;
+    }
+
+    private static long matchEmptyOrDeleted(long controls) {
+        return controls & ~(controls << 7) & MSBS;
+    }
+
+    /**
+     * Spreads the hash code by the finalization step of MurmurHash3: the low bits select
+     * the group, the high 7 bits form the fingerprint.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    private static byte fingerprint(int hash) {
+        return (byte) (hash >>> 25);
+    }
+
+    /**
+     * Returns the number of rehashes occurred in the hash table.
+     *
+     * @return number of rehashes.
+     */
+    @Override
+    public int getRehashesCounter() {
+        return rehashesCounter;
+    }
+
+    /**
+     * Returns the capacity of hash table.
+     *
+     * @return capacity of hash table.
+     */
+    @Override
+    public int getTableCapacity() {
+        return control.length;
+    }
+
+    /**
+     * Returns the index of last update element of the hash table.
+     *
+     * @return the index of last update element of the hash table.
+     */
+    @Override
+    public int getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * Returns the number of occupied places in the hash table.
+     *
+     * @return the number of occupied places in the hash table.
+     */
+    @Override
+    public int getNumberOfOccupied() {
+        return size;
+    }
+}
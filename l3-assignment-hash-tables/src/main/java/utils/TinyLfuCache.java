@@ -0,0 +1,215 @@
+package utils;
+
+/**
+ * The bounded cache based on the chained hash table, which admits the new keys by their frequency (W-TinyLFU).
+ * The new keys enter the small window LRU (1% of the entries). The keys leaving the window become
+ * the candidates of the main LRU, which is split into the probation and the protected segments:
+ * the candidate is admitted only if it was used more often than the eldest key of the probation segment.
+ * The frequencies are estimated by the count-min sketch, which is aged periodically. A key used again
+ * in the probation segment is moved to the protected one (80% of the main LRU).
+ * So a full scan of the keys, each used once, passes through the window and the probation segment
+ * without flushing the keys which are used often, unlike in the LruHashMap.
+ *
+ * @param <K> key type of the cache
+ * @param <V> value type of the cache
+ */
+public class TinyLfuCache<K, V> extends BoundedCache<K, V> {
+
+    // the part of the entries kept in the window, percent
+    private static final int WINDOW_PERCENT = 1;
+    // the part of the main entries kept in the protected segment, percent
+    private static final int PROTECTED_PERCENT = 80;
+
+    // the maximum number of key-value pairs in the window
+    private final int windowMax;
+    // the maximum number of key-value pairs in the protected segment
+    private final int protectedMax;
+    private final CountMinSketch sketch;
+    // the new keys, in the order of access
+    private final AccessQueue<K, V> window = new AccessQueue<>();
+    // the keys of the main LRU used once since they left the window, evicted first
+    private final AccessQueue<K, V> probation = new AccessQueue<>();
+    // the keys of the main LRU used again
+    private final AccessQueue<K, V> protectedSegment = new AccessQueue<>();
+    // the number of candidates which were not admitted to the main LRU
+    private int rejectionsCounter = 0;
+
+    public TinyLfuCache(int maxEntries) {
+        this(maxEntries, DEFAULT_HASH_TYPE);
+    }
+
+    public TinyLfuCache(int maxEntries, HashManager.HashType ht) {
+        this(maxEntries, DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, ht);
+    }
+
+    public TinyLfuCache(int maxEntries, int initialCapacity, float loadFactor, HashManager.HashType ht) {
+        super(maxEntries, initialCapacity, loadFactor, ht);
+        this.windowMax = Math.max(1, maxEntries * WINDOW_PERCENT / 100);
+        this.protectedMax = (maxEntries - windowMax) * PROTECTED_PERCENT / 100;
+        this.sketch = new CountMinSketch(maxEntries);
+    }
+
+    /**
+     * Returns the value associated with the key. The lookup is counted in the frequency of the key
+     * even if the key is missing, so the key loaded after the miss is admitted sooner.
+     *
+     * @param key
+     * @return the value associated with the key.
+     */
+    @Override
+    public V get(K key) {
+        V value = super.get(key);
+        if (value == null) {
+            sketch.increment(key.hashCode());
+        }
+        return value;
+    }
+
+    /**
+     * Removes all the key-value pairs, the frequencies of the keys are kept.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        rejectionsCounter = 0;
+    }
+
+    @Override
+    protected Node<K, V> newNode(int hash, K key, V value, Node<K, V> next) {
+        return new TinyLfuNode<>(hash, key, value, next);
+    }
+
+    @Override
+    protected void afterNodeAccess(Node<K, V> node) {
+        TinyLfuNode<K, V> lfuNode = (TinyLfuNode<K, V>) node;
+        sketch.increment(node.hash);
+        if (lfuNode.queue == probation) {
+            probation.unlink(lfuNode);
+            protectedSegment.linkLast(lfuNode);
+            if (protectedSegment.size > protectedMax) {
+                TinyLfuNode<K, V> demoted = protectedSegment.eldest;
+                protectedSegment.unlink(demoted);
+                probation.linkLast(demoted);
+            }
+        } else if (lfuNode != lfuNode.queue.youngest) {
+            AccessQueue<K, V> queue = lfuNode.queue;
+            queue.unlink(lfuNode);
+            queue.linkLast(lfuNode);
+        }
+    }
+
+    @Override
+    protected void afterNodeInsertion(Node<K, V> node) {
+        sketch.increment(node.hash);
+        window.linkLast((TinyLfuNode<K, V>) node);
+        if (window.size <= windowMax) {
+            return;
+        }
+
+        TinyLfuNode<K, V> candidate = window.eldest;
+        window.unlink(candidate);
+        probation.linkLast(candidate);
+        if (size <= maxEntries) {
+            return;
+        }
+
+        TinyLfuNode<K, V> victim = probation.eldest;
+        if (victim == candidate) {
+            victim = protectedSegment.eldest;
+        }
+        TinyLfuNode<K, V> evicted;
+        if (victim != null && sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+            evicted = victim;
+        } else {
+            evicted = candidate;
+            rejectionsCounter++;
+        }
+        evict(evicted);
+    }
+
+    @Override
+    protected void afterNodeRemoval(Node<K, V> node) {
+        TinyLfuNode<K, V> lfuNode = (TinyLfuNode<K, V>) node;
+        lfuNode.queue.unlink(lfuNode);
+    }
+
+    /**
+     * Returns the number of the keys which left the window and were evicted, since they were used
+     * less often than the eldest key of the main LRU.
+     *
+     * @return Number of rejected candidates.
+     */
+    public int getRejectionsCounter() {
+        return rejectionsCounter;
+    }
+
+    /**
+     * Returns the number of times the frequencies of the keys were halved.
+     *
+     * @return Number of agings.
+     */
+    public int getAgingsCounter() {
+        return sketch.getResetsCounter();
+    }
+
+    protected static class TinyLfuNode<K, V> extends Node<K, V> {
+
+        // Neighbours in the access order list of the segment, the eldest first
+        protected TinyLfuNode<K, V> before, after;
+        // The window, probation or protected segment holding the node
+        protected AccessQueue<K, V> queue;
+
+        protected TinyLfuNode(int hash, K key, V value, Node<K, V> next) {
+            super(hash, key, value, next);
+        }
+    }
+
+    /**
+     * The access order list of one segment, the least recently used node first.
+     */
+    protected static final class AccessQueue<K, V> {
+
+        private TinyLfuNode<K, V> eldest;
+        private TinyLfuNode<K, V> youngest;
+        private int size = 0;
+
+        private void linkLast(TinyLfuNode<K, V> node) {
+            node.queue = this;
+            node.before = youngest;
+            node.after = null;
+            if (youngest == null) {
+                eldest = node;
+            } else {
+                youngest.after = node;
+            }
+            youngest = node;
+            size++;
+        }
+
+        private void unlink(TinyLfuNode<K, V> node) {
+            if (node.before == null) {
+                eldest = node.after;
+            } else {
+                node.before.after = node.after;
+            }
+            if (node.after == null) {
+                youngest = node.before;
+            } else {
+                node.after.before = node.before;
+            }
+            node.before = null;
+            node.after = null;
+            node.queue = null;
+            size--;
+        }
+
+        private void clear() {
+            eldest = null;
+            youngest = null;
+            size = 0;
+        }
+    }
+}
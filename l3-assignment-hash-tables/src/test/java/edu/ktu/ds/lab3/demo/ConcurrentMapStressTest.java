@@ -0,0 +1,152 @@
+package edu.ktu.ds.lab3.demo;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import utils.ConcurrentStripedHashMap;
+import utils.EvaluableMap;
+import utils.HashManager;
+import utils.LockFreeHashMapOa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Stress tests shared by the thread-safe maps: the threads change the map while it grows from a tiny table.
+ * Every scenario runs for each map and each hash function.
+ */
+@RunWith(Parameterized.class)
+public class ConcurrentMapStressTest {
+
+    static final int THREADS = 8;
+    private static final int KEYS_PER_THREAD = 5000;
+    private static final int COUNTERS = 16;
+    private static final int INCREMENTS_PER_THREAD = 4000;
+    private static final int FILLER_KEYS = 20000;
+
+    private final Function<HashManager.HashType, EvaluableMap<String, Integer>> factory;
+    private final HashManager.HashType ht;
+
+    public ConcurrentMapStressTest(String name, Function<HashManager.HashType, EvaluableMap<String, Integer>> factory,
+                                   HashManager.HashType ht) {
+        this.factory = factory;
+        this.ht = ht;
+    }
+
+    @Parameterized.Parameters(name = "{0} {2}")
+    public static Collection<Object[]> maps() {
+        List<Object[]> maps = new ArrayList<>();
+        for (HashManager.HashType ht : HashManager.HashType.values()) {
+            maps.add(new Object[]{"ConcurrentStripedHashMap",
+                    (Function<HashManager.HashType, EvaluableMap<String, Integer>>)
+                            type -> new ConcurrentStripedHashMap<>(2, 0.75f, type, 4), ht});
+            maps.add(new Object[]{"LockFreeHashMapOa",
+                    (Function<HashManager.HashType, EvaluableMap<String, Integer>>)
+                            type -> new LockFreeHashMapOa<>(2, type), ht});
+        }
+        return maps;
+    }
+
+    @Test(timeout = 60000)
+    public void putAndRemoveDisjointKeysAcrossResizes() throws Exception {
+        EvaluableMap<String, Integer> map = factory.apply(ht);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            tasks.add(() -> {
+                for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                    map.put(key(thread, i), i);
+                }
+                for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                    Assert.assertEquals(key(thread, i), Integer.valueOf(i), map.get(key(thread, i)));
+                }
+                for (int i = 0; i < KEYS_PER_THREAD; i += 2) {
+                    Assert.assertEquals(key(thread, i), Integer.valueOf(i), map.remove(key(thread, i)));
+                }
+                return null;
+            });
+        }
+        runConcurrently(tasks);
+
+        Assert.assertTrue(map.getRehashesCounter() > 0);
+        Assert.assertEquals(THREADS * KEYS_PER_THREAD / 2, map.size());
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                Integer expected = i % 2 == 0 ? null : i;
+                Assert.assertEquals(key(t, i), expected, map.get(key(t, i)));
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void replaceCountersWhileResizing() throws Exception {
+        EvaluableMap<String, Integer> map = factory.apply(ht);
+        for (int c = 0; c < COUNTERS; c++) {
+            map.put("C" + c, 0);
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < INCREMENTS_PER_THREAD; i++) {
+                    String counter = "C" + i % COUNTERS;
+                    Integer value;
+                    do {
+                        value = map.get(counter);
+                    } while (!map.replace(counter, value, value + 1));
+                }
+                return null;
+            });
+        }
+        // The filler keys grow the table while the counters are replaced
+        tasks.add(() -> {
+            for (int i = 0; i < FILLER_KEYS; i++) {
+                map.put("F" + i, i);
+            }
+            return null;
+        });
+        runConcurrently(tasks);
+
+        for (int c = 0; c < COUNTERS; c++) {
+            Assert.assertEquals("C" + c, Integer.valueOf(THREADS * INCREMENTS_PER_THREAD / COUNTERS), map.get("C" + c));
+        }
+        for (int i = 0; i < FILLER_KEYS; i++) {
+            Assert.assertEquals("F" + i, Integer.valueOf(i), map.get("F" + i));
+        }
+        Assert.assertEquals(COUNTERS + FILLER_KEYS, map.size());
+    }
+
+    static String key(int thread, int i) {
+        return "T" + thread + "-" + i;
+    }
+
+    /**
+     * Starts the tasks at once and rethrows the first failure.
+     */
+    static void runConcurrently(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package edu.ktu.ds.lab3.demo;
+
+import org.junit.Assert;
+import org.junit.Test;
+import utils.ConcurrentStripedHashMap;
+import utils.HashManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static edu.ktu.ds.lab3.demo.ConcurrentMapStressTest.THREADS;
+import static edu.ktu.ds.lab3.demo.ConcurrentMapStressTest.key;
+import static edu.ktu.ds.lab3.demo.ConcurrentMapStressTest.runConcurrently;
+
+/**
+ * Tests of the lock striping: the writers waiting for the lock of one stripe while the table is
+ * resized or cleared have to retry in the new table.
+ */
+public class ConcurrentStripedHashMapTest {
+
+    private static final int STRIPES = 4;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int KEYS_PER_THREAD = 2000;
+    private static final int CLEARS = 200;
+
+    @Test(timeout = 60000)
+    public void sameStripeKeysAcrossResizes() throws Exception {
+        for (HashManager.HashType ht : HashManager.HashType.values()) {
+            ConcurrentStripedHashMap<Integer, Integer> map =
+                    new ConcurrentStripedHashMap<>(INITIAL_CAPACITY, 0.75f, ht, STRIPES);
+            int[][] keys = firstStripeKeys(ht);
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int[] own = keys[t];
+                tasks.add(() -> {
+                    for (int key : own) {
+                        map.put(key, key);
+                    }
+                    for (int i = 0; i < own.length; i++) {
+                        if (i % 2 == 0) {
+                            Assert.assertEquals(ht + " " + own[i], Integer.valueOf(own[i]), map.remove(own[i]));
+                        } else {
+                            Assert.assertTrue(ht + " " + own[i], map.replace(own[i], own[i], -own[i]));
+                        }
+                    }
+                    return null;
+                });
+            }
+            runConcurrently(tasks);
+
+            Assert.assertTrue(ht.toString(), map.getRehashesCounter() > 0);
+            Assert.assertEquals(ht.toString(), THREADS * KEYS_PER_THREAD / 2, map.size());
+            for (int[] own : keys) {
+                for (int i = 0; i < own.length; i++) {
+                    Integer expected = i % 2 == 0 ? null : -own[i];
+                    Assert.assertEquals(ht + " " + own[i], expected, map.get(own[i]));
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void clearRacingPut() throws Exception {
+        for (HashManager.HashType ht : HashManager.HashType.values()) {
+            ConcurrentStripedHashMap<String, Integer> map =
+                    new ConcurrentStripedHashMap<>(INITIAL_CAPACITY, 0.75f, ht, STRIPES);
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                tasks.add(() -> {
+                    for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                        map.put(key(thread, i), i);
+                    }
+                    return null;
+                });
+            }
+            tasks.add(() -> {
+                for (int i = 0; i < CLEARS; i++) {
+                    map.clear();
+                    Thread.yield();
+                }
+                return null;
+            });
+            runConcurrently(tasks);
+
+            // The keys put after the last clear survive it, so each writer keeps the tail of its keys
+            int present = 0;
+            for (int t = 0; t < THREADS; t++) {
+                boolean tail = false;
+                for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                    Integer value = map.get(key(t, i));
+                    if (value != null) {
+                        Assert.assertEquals(ht + " " + key(t, i), Integer.valueOf(i), value);
+                        present++;
+                        tail = true;
+                    } else {
+                        Assert.assertFalse(ht + " lost " + key(t, i), tail);
+                    }
+                }
+            }
+            int[] visited = {0};
+            map.forEach((k, v) -> visited[0]++);
+            Assert.assertEquals(ht.toString(), present, map.size());
+            Assert.assertEquals(ht.toString(), present, visited[0]);
+        }
+    }
+
+    /**
+     * Returns the disjoint keys of the threads, all of which fall into the first stripe of the initial table.
+     */
+    private static int[][] firstStripeKeys(HashManager.HashType ht) {
+        int[][] keys = new int[THREADS][KEYS_PER_THREAD];
+        int key = 0;
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                do {
+                    key++;
+                } while (HashManager.hash(Integer.hashCode(key), INITIAL_CAPACITY, ht) >= INITIAL_CAPACITY / STRIPES);
+                keys[t][i] = key;
+            }
+        }
+        return keys;
+    }
+}
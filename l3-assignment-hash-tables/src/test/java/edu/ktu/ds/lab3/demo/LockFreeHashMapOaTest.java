@@ -0,0 +1,141 @@
+package edu.ktu.ds.lab3.demo;
+
+import org.junit.Assert;
+import org.junit.Test;
+import utils.HashManager;
+import utils.LockFreeHashMapOa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static edu.ktu.ds.lab3.demo.ConcurrentMapStressTest.THREADS;
+import static edu.ktu.ds.lab3.demo.ConcurrentMapStressTest.key;
+import static edu.ktu.ds.lab3.demo.ConcurrentMapStressTest.runConcurrently;
+
+/**
+ * Tests of the tombstones of the lock-free map: a removed key keeps its slot until the next resize,
+ * and the put of the same key revives it.
+ */
+public class LockFreeHashMapOaTest {
+
+    private static final int KEYS_PER_THREAD = 16;
+    private static final int ROUNDS = 2000;
+    private static final int CAPACITY = 1024;
+    private static final int REMOVED_KEYS = 760;
+    private static final int NEW_KEYS_PER_THREAD = 40;
+    private static final int REVIVED_KEYS_PER_THREAD = 10;
+
+    @Test
+    public void occupiedSlotsIncludeTombstones() {
+        for (HashManager.HashType ht : HashManager.HashType.values()) {
+            LockFreeHashMapOa<String, Integer> map = new LockFreeHashMapOa<>(CAPACITY, ht);
+            for (int i = 0; i < 10; i++) {
+                map.put(key(0, i), i);
+            }
+            for (int i = 0; i < 4; i++) {
+                map.remove(key(0, i));
+            }
+            Assert.assertEquals(ht.toString(), 6, map.size());
+            Assert.assertEquals(ht.toString(), 4, map.getTombstonesCounter());
+            Assert.assertEquals(ht.toString(), 10, map.getNumberOfOccupied());
+
+            map.put(key(0, 0), 100);
+            Assert.assertEquals(ht.toString(), 7, map.size());
+            Assert.assertEquals(ht.toString(), 3, map.getTombstonesCounter());
+            Assert.assertEquals(ht.toString(), 10, map.getNumberOfOccupied());
+            Assert.assertEquals(ht.toString(), Integer.valueOf(100), map.get(key(0, 0)));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void concurrentRevivalKeepsTheSlots() throws Exception {
+        for (HashManager.HashType ht : HashManager.HashType.values()) {
+            LockFreeHashMapOa<String, Integer> map = new LockFreeHashMapOa<>(CAPACITY, ht);
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                tasks.add(() -> {
+                    for (int round = 0; round < ROUNDS; round++) {
+                        for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                            map.put(key(thread, i), round);
+                            if (i % 2 == 0 || round < ROUNDS - 1) {
+                                Assert.assertEquals(ht + " " + key(thread, i), Integer.valueOf(round),
+                                        map.remove(key(thread, i)));
+                            }
+                        }
+                    }
+                    return null;
+                });
+            }
+            runConcurrently(tasks);
+
+            // Each key claimed one slot and revived it afterwards, so the table never filled up
+            Assert.assertEquals(ht.toString(), 0, map.getRehashesCounter());
+            Assert.assertEquals(ht.toString(), CAPACITY, map.getTableCapacity());
+            Assert.assertEquals(ht.toString(), THREADS * KEYS_PER_THREAD, map.getNumberOfOccupied());
+            Assert.assertEquals(ht.toString(), THREADS * KEYS_PER_THREAD / 2, map.getTombstonesCounter());
+            Assert.assertEquals(ht.toString(), THREADS * KEYS_PER_THREAD / 2, map.size());
+            for (int t = 0; t < THREADS; t++) {
+                for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                    Integer expected = i % 2 == 0 ? null : ROUNDS - 1;
+                    Assert.assertEquals(ht + " " + key(t, i), expected, map.get(key(t, i)));
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void putsRacingTheCopyWhichDropsTombstones() throws Exception {
+        for (HashManager.HashType ht : HashManager.HashType.values()) {
+            LockFreeHashMapOa<String, Integer> map = new LockFreeHashMapOa<>(CAPACITY, ht);
+            // The removed keys keep their slots just below the threshold, while few keys are alive
+            for (int i = 0; i < REMOVED_KEYS; i++) {
+                map.put("D" + i, i);
+            }
+            for (int i = 0; i < REMOVED_KEYS; i++) {
+                map.remove("D" + i);
+            }
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                tasks.add(() -> {
+                    for (int i = 0; i < NEW_KEYS_PER_THREAD; i++) {
+                        map.put(key(thread, i), i);
+                        if (i < REVIVED_KEYS_PER_THREAD) {
+                            map.put("D" + revived(thread, i), -i);
+                        }
+                    }
+                    return null;
+                });
+            }
+            runConcurrently(tasks);
+            // The reads which meet the attached table help to copy it
+            while (map.getMigrationChainsLeft() > 0) {
+                map.get("absent");
+            }
+
+            int alive = THREADS * (NEW_KEYS_PER_THREAD + REVIVED_KEYS_PER_THREAD);
+            Assert.assertTrue(ht.toString(), map.getRehashesCounter() > 0);
+            Assert.assertEquals(ht.toString(), CAPACITY, map.getTableCapacity());
+            Assert.assertEquals(ht.toString(), 0, map.getTombstonesCounter());
+            Assert.assertEquals(ht.toString(), alive, map.getNumberOfOccupied());
+            Assert.assertEquals(ht.toString(), alive, map.size());
+            for (int t = 0; t < THREADS; t++) {
+                for (int i = 0; i < NEW_KEYS_PER_THREAD; i++) {
+                    Assert.assertEquals(ht + " " + key(t, i), Integer.valueOf(i), map.get(key(t, i)));
+                }
+                for (int i = 0; i < REVIVED_KEYS_PER_THREAD; i++) {
+                    Assert.assertEquals(ht + " D" + revived(t, i), Integer.valueOf(-i), map.get("D" + revived(t, i)));
+                }
+            }
+            for (int i = THREADS * REVIVED_KEYS_PER_THREAD; i < REMOVED_KEYS; i++) {
+                Assert.assertNull(ht + " D" + i, map.get("D" + i));
+            }
+        }
+    }
+
+    private static int revived(int thread, int i) {
+        return i * THREADS + thread;
+    }
+}